@@ -0,0 +1,107 @@
+package com.thomasbreydo.datastructures;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Spliterator over the entries of a {@link Map}, mapped to keys, values or the entries themselves.
+ * It covers a range of bucket slots, where the slots of the old buckets of an incremental resize
+ * come after those of the current buckets. Splitting hands half of the remaining slots to a new
+ * spliterator, so a parallel stream splits the table into pieces that are searched independently.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ * @param <T> element type
+ */
+final class BucketSpliterator<K, V, T> implements Spliterator<T> {
+  final Iterable<Map.Entry<K, V>>[] buckets;
+  /** Old buckets still being drained, or an empty array. */
+  final Iterable<Map.Entry<K, V>>[] oldBuckets;
+  final Function<? super Map.Entry<K, V>, ? extends T> mapper;
+  final int characteristics;
+  /** Next slot to visit. */
+  int index;
+  /** One past the last slot to visit. */
+  final int fence;
+  long estimate;
+  /** Entries left in the bucket being visited, or {@code null}. */
+  Iterator<Map.Entry<K, V>> current;
+
+  BucketSpliterator(
+      Iterable<Map.Entry<K, V>>[] buckets,
+      Iterable<Map.Entry<K, V>>[] oldBuckets,
+      int index,
+      int fence,
+      long estimate,
+      Function<? super Map.Entry<K, V>, ? extends T> mapper,
+      int characteristics) {
+    this.buckets = buckets;
+    this.oldBuckets = oldBuckets;
+    this.index = index;
+    this.fence = fence;
+    this.estimate = estimate;
+    this.mapper = mapper;
+    this.characteristics = characteristics;
+  }
+
+  Iterable<Map.Entry<K, V>> bucketAt(int i) {
+    return i < buckets.length ? buckets[i] : oldBuckets[i - buckets.length];
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super T> action) {
+    while (true) {
+      if (current != null) {
+        if (current.hasNext()) {
+          action.accept(mapper.apply(current.next()));
+          return true;
+        }
+        current = null;
+      }
+      if (index >= fence) return false;
+      Iterable<Map.Entry<K, V>> bucket = bucketAt(index++);
+      if (bucket != null) {
+        current = bucket.iterator();
+      }
+    }
+  }
+
+  @Override
+  public void forEachRemaining(Consumer<? super T> action) {
+    if (current != null) {
+      current.forEachRemaining(entry -> action.accept(mapper.apply(entry)));
+      current = null;
+    }
+    for (; index < fence; ++index) {
+      Iterable<Map.Entry<K, V>> bucket = bucketAt(index);
+      if (bucket == null) continue;
+      for (Map.Entry<K, V> entry : bucket) {
+        action.accept(mapper.apply(entry));
+      }
+    }
+  }
+
+  /** Splits off the first half of the slots not yet visited. The elements are not ordered. */
+  @Override
+  public Spliterator<T> trySplit() {
+    int mid = (index + fence) >>> 1;
+    if (mid <= index) return null;
+    BucketSpliterator<K, V, T> prefix =
+        new BucketSpliterator<>(
+            buckets, oldBuckets, index, mid, estimate >>>= 1, mapper, characteristics);
+    index = mid;
+    return prefix;
+  }
+
+  @Override
+  public long estimateSize() {
+    return estimate;
+  }
+
+  @Override
+  public int characteristics() {
+    return characteristics;
+  }
+}
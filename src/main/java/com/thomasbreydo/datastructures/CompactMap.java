@@ -0,0 +1,267 @@
+package com.thomasbreydo.datastructures;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * Hash-map with the same operations as {@link Map}, stored as parallel arrays instead of entry
+ * objects. Entries are appended to {@code hashes}, {@code keys}, {@code values} and {@code next}
+ * in insertion order, and {@code index} holds, for every bucket, the position of its first entry.
+ * The entries of a bucket are chained through {@code next}, so a bucket costs one {@code int} and
+ * an entry four array slots, where {@link Map} needs an entry, a list node and a list.
+ *
+ * <p>Iterating is a scan of the entry arrays, in insertion order. A deleted entry leaves a gap that
+ * is skipped until the next resize, which packs the entries without hashing any key again.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class CompactMap<K, V> {
+  static final int DEFAULT_CAPACITY = 16;
+  static final double DEFAULT_LOAD_FACTOR = 0.75;
+  /** Marks an empty bucket or the end of a chain. */
+  static final int NONE = -1;
+  /** Stands in for the key of a deleted entry, since {@code null} is a valid key. */
+  static final Object DELETED = new Object();
+
+  final double loadFactor;
+  final HashingStrategy<? super K> strategy;
+  int size;
+  /** Number of buckets, a power of two. */
+  int capacity;
+  /** Position of the first entry of every bucket, or {@link #NONE}. */
+  int[] index;
+  int[] hashes;
+  Object[] keys;
+  Object[] values;
+  /** Position of the next entry of the same bucket, or {@link #NONE}. */
+  int[] next;
+  /** Number of entry positions used so far, including deleted ones. */
+  int used;
+
+  /**
+   * @param capacity initial number of buckets, rounded up to a power of two
+   * @param loadFactor maximum ratio of entries, deleted ones included, to buckets
+   * @param strategy how keys are hashed and compared
+   */
+  CompactMap(int capacity, double loadFactor, HashingStrategy<? super K> strategy) {
+    checkCapacity(capacity);
+    if (!(loadFactor > 0)) throw new IllegalArgumentException();
+    this.loadFactor = loadFactor;
+    this.strategy = strategy;
+    allocate(Hashing.tableSize(capacity));
+  }
+
+  CompactMap(int capacity, double loadFactor) {
+    this(capacity, loadFactor, HashingStrategy.natural());
+  }
+
+  CompactMap(HashingStrategy<? super K> strategy) {
+    this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR, strategy);
+  }
+
+  CompactMap(int capacity) {
+    this(capacity, DEFAULT_LOAD_FACTOR);
+  }
+
+  CompactMap() {
+    this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+  }
+
+  void checkCapacity(int capacity) {
+    if (capacity <= 0) throw new IllegalArgumentException();
+  }
+
+  /**
+   * Replaces the arrays with empty ones for {@code capacity} buckets. The entry arrays have room
+   * for the current entries and at least one more, even if the load factor allows fewer.
+   */
+  void allocate(int capacity) {
+    this.capacity = capacity;
+    index = new int[capacity];
+    Arrays.fill(index, NONE);
+    int entries = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(size + 1, capacity * loadFactor));
+    hashes = new int[entries];
+    keys = new Object[entries];
+    values = new Object[entries];
+    next = new int[entries];
+    used = 0;
+  }
+
+  /**
+   * Moves the entries into arrays for {@code newCapacity} buckets, dropping deleted ones. Entries
+   * keep their order and their cached hashes, so no key is hashed or compared again.
+   */
+  void expand(int newCapacity) {
+    checkCapacity(newCapacity);
+    int[] oldHashes = hashes;
+    Object[] oldKeys = keys;
+    Object[] oldValues = values;
+    int oldUsed = used;
+    allocate(Hashing.tableSize(newCapacity));
+    for (int i = 0; i < oldUsed; ++i) {
+      if (oldKeys[i] != DELETED) {
+        append(oldHashes[i], oldKeys[i], oldValues[i]);
+      }
+    }
+  }
+
+  /** Adds an entry at the end of the entry arrays and links it into its bucket. */
+  void append(int h, Object key, Object value) {
+    int i = used++;
+    int b = h & (capacity - 1);
+    hashes[i] = h;
+    keys[i] = key;
+    values[i] = value;
+    next[i] = index[b];
+    index[b] = i;
+  }
+
+  /**
+   * @return the number of buckets to expand to once the entry arrays are full: the same number if
+   *     deletes left at least half of the positions free, since packing the entries is then enough,
+   *     otherwise twice as many, up to {@link Hashing#MAX_CAPACITY}
+   */
+  int nextCapacity() {
+    if (size < used / 2 || capacity >= Hashing.MAX_CAPACITY) return capacity;
+    return capacity * 2;
+  }
+
+  int hash(K key) {
+    return Hashing.mix(strategy.hash(key));
+  }
+
+  /** @return the position of the entry for {@code key}, with hash {@code h}, or {@link #NONE} */
+  @SuppressWarnings("unchecked")
+  int find(int h, K key) {
+    for (int i = index[h & (capacity - 1)]; i != NONE; i = next[i]) {
+      if (hashes[i] == h && strategy.equals((K) keys[i], key)) return i;
+    }
+    return NONE;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Inserts an entry with {@code (key, value)} into this map. If a value with key {@code key}
+   * already existed, the old value is overwritten.
+   *
+   * @param key the key
+   * @param value the value
+   * @return the old value if {@code key} was present in the map, otherwise {@code null}.
+   */
+  @SuppressWarnings("unchecked")
+  public V insert(K key, V value) {
+    int h = hash(key);
+    int i = find(h, key);
+    if (i != NONE) {
+      V v = (V) values[i];
+      values[i] = value;
+      return v;
+    }
+    if (used == keys.length) {
+      expand(nextCapacity());
+    }
+    append(h, key, value);
+    ++size;
+    return null;
+  }
+
+  /**
+   * Gets the value for {@code key}. Returns {@code null} if {@code key} is not found.
+   *
+   * @param key the key whose value to find
+   * @return the value for {@code key} or {@code null}
+   */
+  @SuppressWarnings("unchecked")
+  public V get(K key) {
+    int i = find(hash(key), key);
+    return i == NONE ? null : (V) values[i];
+  }
+
+  /**
+   * Checks if this map contains an entry whose key is {@code key}.
+   *
+   * @param key the key to check
+   * @return {@code true} if the key is in this map, else {@code false}
+   */
+  public boolean hasKey(K key) {
+    return find(hash(key), key) != NONE;
+  }
+
+  /**
+   * Delete the entry of a key, if it is present. The entry is unlinked from its bucket and its
+   * position is left empty until the next resize.
+   *
+   * @param k key whose entry to delete if present
+   * @return {@code true} if key was found before deletion, else {@code false}
+   */
+  @SuppressWarnings("unchecked")
+  public boolean delete(K k) {
+    int h = hash(k);
+    int b = h & (capacity - 1);
+    int prev = NONE;
+    for (int i = index[b]; i != NONE; prev = i, i = next[i]) {
+      if (hashes[i] == h && strategy.equals((K) keys[i], k)) {
+        if (prev == NONE) {
+          index[b] = next[i];
+        } else {
+          next[prev] = next[i];
+        }
+        keys[i] = DELETED;
+        values[i] = null;
+        --size;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Performs {@code action} on every entry, in the order the keys were first inserted.
+   *
+   * @param action the action
+   */
+  @SuppressWarnings("unchecked")
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    for (int i = 0; i < used; ++i) {
+      if (keys[i] != DELETED) {
+        action.accept((K) keys[i], (V) values[i]);
+      }
+    }
+  }
+
+  /** @return the keys of this map, in the order they were first inserted */
+  public Iterable<K> keys() {
+    return () ->
+        new Iterator<K>() {
+          int i = skipDeleted(0);
+
+          @Override
+          public boolean hasNext() {
+            return i < used;
+          }
+
+          @Override
+          @SuppressWarnings("unchecked")
+          public K next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            K key = (K) keys[i];
+            i = skipDeleted(i + 1);
+            return key;
+          }
+        };
+  }
+
+  /** @return the first position from {@code i} on that holds an entry, or {@link #used} */
+  int skipDeleted(int i) {
+    while (i < used && keys[i] == DELETED) {
+      ++i;
+    }
+    return i;
+  }
+}
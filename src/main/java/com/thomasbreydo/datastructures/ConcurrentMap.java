@@ -0,0 +1,391 @@
+package com.thomasbreydo.datastructures;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe hash-map with the same operations as {@link Map}, built from the same kind of array
+ * of chained buckets.
+ *
+ * <p>Writers lock one of a fixed number of stripes. Stripe {@code s} guards every bucket whose
+ * index is {@code s} modulo the number of stripes, so writers only wait for each other if they hit
+ * the same stripe. Readers never lock: they rely on the bucket array and the chain links being
+ * safely published. The size is kept in a striped counter ({@link LongAdder}).
+ *
+ * <p>A resize is shared by all writers that run into it. Each one claims the next {@link
+ * #TRANSFER_STRIDE} old buckets, moves them into the new table and leaves a {@link Forward} behind
+ * so that readers and writers continue in the new table.
+ *
+ * <p>Keys and values can't be {@code null}, since {@code null} is what {@link #get} returns for a
+ * missing key.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class ConcurrentMap<K, V> {
+  static final int DEFAULT_CAPACITY = 16;
+  static final double DEFAULT_LOAD_FACTOR = 0.75;
+  static final int DEFAULT_STRIPES = 16;
+  /** Number of old buckets a thread claims at a time when helping with a resize. */
+  static final int TRANSFER_STRIDE = 16;
+
+  final double loadFactor;
+  final ReentrantLock[] locks;
+  final LongAdder size = new LongAdder();
+  volatile Table<K, V> table;
+
+  /**
+   * @param capacity initial number of buckets, rounded up to a power of two that is at least the
+   *     number of stripes
+   * @param loadFactor maximum ratio of {@code size} to {@code capacity}
+   * @param stripes number of locks, rounded up to a power of two
+   */
+  ConcurrentMap(int capacity, double loadFactor, int stripes) {
+    checkCapacity(capacity);
+    checkCapacity(stripes);
+    this.loadFactor = loadFactor;
+    locks = new ReentrantLock[Hashing.tableSize(stripes)];
+    for (int i = 0; i < locks.length; ++i) {
+      locks[i] = new ReentrantLock();
+    }
+    // a stripe must guard the same buckets in the old and new table of a resize, which holds as
+    // long as there are at least as many buckets as stripes
+    table = new Table<>(Math.max(Hashing.tableSize(capacity), locks.length), loadFactor);
+  }
+
+  ConcurrentMap(int capacity, double loadFactor) {
+    this(capacity, loadFactor, DEFAULT_STRIPES);
+  }
+
+  ConcurrentMap(int capacity) {
+    this(capacity, DEFAULT_LOAD_FACTOR);
+  }
+
+  ConcurrentMap() {
+    this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+  }
+
+  void checkCapacity(int capacity) {
+    if (capacity <= 0) throw new IllegalArgumentException();
+  }
+
+  int capacity() {
+    return table.bins.length();
+  }
+
+  static int hash(Object key) {
+    return Hashing.mix(key.hashCode());
+  }
+
+  ReentrantLock lockFor(int index) {
+    return locks[index & (locks.length - 1)];
+  }
+
+  public int size() {
+    return (int) size.sum();
+  }
+
+  Node<K, V> getNode(Object key) {
+    int h = hash(key);
+    Table<K, V> t = table;
+    while (true) {
+      Node<K, V> node = t.bins.get(h & (t.bins.length() - 1));
+      if (node instanceof Forward) {
+        t = ((Forward<K, V>) node).table;
+        continue;
+      }
+      for (; node != null; node = node.next) {
+        if (node.hash == h && (node.key == key || node.key.equals(key))) {
+          return node;
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Inserts an entry with {@code (key, value)} into this map. If a value with key {@code key}
+   * already existed, the old value is overwritten.
+   *
+   * @param key the key
+   * @param value the value
+   * @return the old value if {@code key} was present in the map, otherwise {@code null}.
+   * @throws NullPointerException if {@code key} or {@code value} is {@code null}
+   */
+  public V insert(K key, V value) {
+    return put(key, value, false);
+  }
+
+  /**
+   * Inserts an entry with {@code (key, value)} into this map, unless {@code key} is already
+   * present. Checking and inserting happen atomically.
+   *
+   * @param key the key
+   * @param value the value
+   * @return the present value if {@code key} was present in the map (which is then unchanged),
+   *     otherwise {@code null}.
+   * @throws NullPointerException if {@code key} or {@code value} is {@code null}
+   */
+  public V putIfAbsent(K key, V value) {
+    return put(key, value, true);
+  }
+
+  V put(K key, V value, boolean onlyIfAbsent) {
+    if (value == null) throw new NullPointerException();
+    int h = hash(key);
+    Table<K, V> t = table;
+    while (true) {
+      int i = h & (t.bins.length() - 1);
+      Table<K, V> moved = null;
+      boolean collided = false;
+      ReentrantLock lock = lockFor(i);
+      lock.lock();
+      try {
+        Node<K, V> first = t.bins.get(i);
+        if (first instanceof Forward) {
+          moved = ((Forward<K, V>) first).table;
+        } else {
+          for (Node<K, V> node = first; node != null; node = node.next) {
+            if (node.hash == h && (node.key == key || node.key.equals(key))) {
+              V v = node.value;
+              if (!onlyIfAbsent) {
+                node.value = value;
+              }
+              return v;
+            }
+          }
+          t.bins.set(i, new Node<>(h, key, value, first));
+          collided = first != null;
+        }
+      } finally {
+        lock.unlock();
+      }
+      if (moved != null) {
+        transfer(t, moved);
+        t = moved;
+        continue;
+      }
+      size.increment();
+      // summing the counter is only worth it once buckets start to fill up
+      if (collided && size.sum() > t.threshold) {
+        resize(t);
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Gets the value for {@code key}. Returns {@code null} if {@code key} is not found.
+   *
+   * @param key the key whose value to find
+   * @return the value for {@code key} or {@code null}
+   */
+  public V get(K key) {
+    Node<K, V> node = getNode(key);
+    return node == null ? null : node.value;
+  }
+
+  /**
+   * Checks if this map contains an entry whose key is {@code key}.
+   *
+   * @param key the key to check
+   * @return {@code true} if the key is in this map, else {@code false}
+   */
+  public boolean hasKey(K key) {
+    return getNode(key) != null;
+  }
+
+  /**
+   * Delete the entry of a key, if it is present.
+   *
+   * @param k key whose entry to delete if present
+   * @return {@code true} if key was found before deletion, else {@code false}
+   */
+  public boolean delete(K k) {
+    return remove(k, null);
+  }
+
+  /**
+   * Delete the entry of a key, if it is present and its value equals {@code value}. Checking and
+   * deleting happen atomically.
+   *
+   * @param k key whose entry to delete if present
+   * @param value the value the entry must have
+   * @return {@code true} if the entry was deleted, else {@code false}
+   * @throws NullPointerException if {@code value} is {@code null}
+   */
+  public boolean delete(K k, V value) {
+    if (value == null) throw new NullPointerException();
+    return remove(k, value);
+  }
+
+  /** Deletes the entry of {@code k} if its value equals {@code expected}, or any entry if null. */
+  boolean remove(K k, V expected) {
+    int h = hash(k);
+    Table<K, V> t = table;
+    while (true) {
+      int i = h & (t.bins.length() - 1);
+      Table<K, V> moved = null;
+      ReentrantLock lock = lockFor(i);
+      lock.lock();
+      try {
+        Node<K, V> first = t.bins.get(i);
+        if (first instanceof Forward) {
+          moved = ((Forward<K, V>) first).table;
+        } else {
+          for (Node<K, V> node = first, pred = null; node != null; pred = node, node = node.next) {
+            if (node.hash == h && (node.key == k || node.key.equals(k))) {
+              if (expected != null && !expected.equals(node.value)) return false;
+              // readers that are already past pred will still see node, which is harmless
+              if (pred == null) {
+                t.bins.set(i, node.next);
+              } else {
+                pred.next = node.next;
+              }
+              size.decrement();
+              return true;
+            }
+          }
+        }
+      } finally {
+        lock.unlock();
+      }
+      if (moved == null) return false;
+      transfer(t, moved);
+      t = moved;
+    }
+  }
+
+  /**
+   * Sets the value of {@code key} to {@code value}, if it is present and its value equals {@code
+   * expected}. Checking and setting happen atomically.
+   *
+   * @param key the key
+   * @param expected the value the entry must have
+   * @param value the new value
+   * @return {@code true} if the value was set, else {@code false}
+   * @throws NullPointerException if any argument is {@code null}
+   */
+  public boolean replace(K key, V expected, V value) {
+    if (expected == null || value == null) throw new NullPointerException();
+    int h = hash(key);
+    Table<K, V> t = table;
+    while (true) {
+      int i = h & (t.bins.length() - 1);
+      Table<K, V> moved = null;
+      ReentrantLock lock = lockFor(i);
+      lock.lock();
+      try {
+        Node<K, V> first = t.bins.get(i);
+        if (first instanceof Forward) {
+          moved = ((Forward<K, V>) first).table;
+        } else {
+          for (Node<K, V> node = first; node != null; node = node.next) {
+            if (node.hash == h && (node.key == key || node.key.equals(key))) {
+              if (!expected.equals(node.value)) return false;
+              node.value = value;
+              return true;
+            }
+          }
+        }
+      } finally {
+        lock.unlock();
+      }
+      if (moved == null) return false;
+      transfer(t, moved);
+      t = moved;
+    }
+  }
+
+  /** Starts resizing {@code t} if nobody has yet, then helps with the resize. */
+  void resize(Table<K, V> t) {
+    Table<K, V> next = t.next.get();
+    if (next == null) {
+      if (t != table || t.bins.length() >= Hashing.MAX_CAPACITY) return;
+      t.next.compareAndSet(null, new Table<>(t.bins.length() * 2, loadFactor));
+      next = t.next.get();
+    }
+    transfer(t, next);
+  }
+
+  /** Moves unclaimed buckets of {@code t} into {@code next} until none are left to claim. */
+  void transfer(Table<K, V> t, Table<K, V> next) {
+    int n = t.bins.length();
+    int start;
+    while ((start = t.transferIndex.getAndAdd(TRANSFER_STRIDE)) < n) {
+      int end = Math.min(start + TRANSFER_STRIDE, n);
+      for (int i = start; i < end; ++i) {
+        moveBucket(t, next, i);
+      }
+      if (t.moved.addAndGet(end - start) == n) {
+        table = next;
+      }
+    }
+  }
+
+  void moveBucket(Table<K, V> t, Table<K, V> next, int i) {
+    int n = t.bins.length();
+    ReentrantLock lock = lockFor(i); // also guards buckets i and i + n of next
+    lock.lock();
+    try {
+      Node<K, V> lo = null;
+      Node<K, V> hi = null;
+      // copy instead of relinking, since readers may still be walking the old chain
+      for (Node<K, V> node = t.bins.get(i); node != null; node = node.next) {
+        if ((node.hash & n) == 0) {
+          lo = new Node<>(node.hash, node.key, node.value, lo);
+        } else {
+          hi = new Node<>(node.hash, node.key, node.value, hi);
+        }
+      }
+      next.bins.set(i, lo);
+      next.bins.set(i + n, hi);
+      t.bins.set(i, new Forward<>(next));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  static class Node<K, V> {
+    final int hash;
+    final K key;
+    volatile V value;
+    volatile Node<K, V> next;
+
+    Node(int hash, K key, V value, Node<K, V> next) {
+      this.hash = hash;
+      this.key = key;
+      this.value = value;
+      this.next = next;
+    }
+  }
+
+  /** Placed in an old bucket once its entries have been moved to {@code table}. */
+  static final class Forward<K, V> extends Node<K, V> {
+    final Table<K, V> table;
+
+    Forward(Table<K, V> table) {
+      super(0, null, null, null);
+      this.table = table;
+    }
+  }
+
+  static final class Table<K, V> {
+    final AtomicReferenceArray<Node<K, V>> bins;
+    final long threshold;
+    /** The table this one is being resized into, or {@code null}. */
+    final AtomicReference<Table<K, V>> next = new AtomicReference<>();
+    /** Start of the next range of buckets to be claimed by a thread helping with the resize. */
+    final AtomicInteger transferIndex = new AtomicInteger();
+    /** Number of buckets that have been moved to {@code next}. */
+    final AtomicInteger moved = new AtomicInteger();
+
+    Table(int capacity, double loadFactor) {
+      bins = new AtomicReferenceArray<>(capacity);
+      threshold = (long) (capacity * loadFactor);
+    }
+  }
+}
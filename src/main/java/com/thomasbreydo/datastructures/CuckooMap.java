@@ -0,0 +1,307 @@
+package com.thomasbreydo.datastructures;
+
+/**
+ * Hash-map with the same operations as {@link Map}, using bucketized cuckoo hashing. Every key may
+ * only live in one of the {@link #BUCKET_SIZE} slots of two buckets, picked by two seeded hash
+ * functions, or in a small stash. So {@link #get}, {@link #hasKey} and {@link #delete} look at no
+ * more than {@code 2 * BUCKET_SIZE + STASH_SIZE} slots while the stash has its usual size.
+ *
+ * <p>An insert into two full buckets evicts one of their keys, which moves to its other bucket,
+ * possibly evicting another key, and so on. A walk of more than {@link #MAX_KICKS} evictions
+ * (usually a cycle) ends in the stash; once the stash is full, the table is rebuilt with new hash
+ * functions. Only keys whose hash codes are equal can keep colliding however large the table gets;
+ * if they outnumber the slots of two buckets, the stash grows to hold them, and every lookup then
+ * scans the whole stash. So the bound doesn't hold for keys with badly colliding hash codes, which
+ * are better off in a {@link Map}, whose buckets turn into trees.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class CuckooMap<K, V> {
+  static final int DEFAULT_CAPACITY = 16;
+  static final double DEFAULT_LOAD_FACTOR = 0.9;
+  static final int BUCKET_SIZE = 4;
+  static final int STASH_SIZE = 4;
+  static final int MAX_KICKS = 256;
+  /** Number of rebuilds with new hash functions before the capacity is doubled instead. */
+  static final int MAX_REHASHES = 4;
+
+  final double loadFactor;
+  int size;
+  /** Number of slots, not counting the stash. */
+  int capacity;
+  Object[] keys;
+  Object[] values;
+  Object[] stashKeys;
+  Object[] stashValues;
+  int stashSize;
+  int seed0;
+  int seed1;
+  /** State of the xorshift generator that picks seeds and eviction victims. */
+  int random = 0x9e3779b9;
+  /** The entry left without a slot when {@link #place} fails. */
+  Object pendingKey;
+  Object pendingValue;
+
+  /**
+   * @param capacity initial number of slots, rounded up to a power of two of at least {@link
+   *     #BUCKET_SIZE}
+   * @param loadFactor maximum ratio of {@code size} to {@code capacity} ({@code 0 < loadFactor <
+   *     1})
+   */
+  CuckooMap(int capacity, double loadFactor) {
+    checkCapacity(capacity);
+    if (!(loadFactor > 0 && loadFactor < 1)) throw new IllegalArgumentException();
+    this.loadFactor = loadFactor;
+    allocate(capacity, STASH_SIZE);
+  }
+
+  CuckooMap(int capacity) {
+    this(capacity, DEFAULT_LOAD_FACTOR);
+  }
+
+  CuckooMap() {
+    this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+  }
+
+  void checkCapacity(int capacity) {
+    if (capacity <= 0) throw new IllegalArgumentException();
+  }
+
+  /** Creates an empty table of {@code capacity} slots with new hash functions. */
+  void allocate(int capacity, int stashCapacity) {
+    this.capacity = Hashing.tableSize(Math.max(capacity, BUCKET_SIZE));
+    keys = new Object[this.capacity];
+    values = new Object[this.capacity];
+    stashKeys = new Object[stashCapacity];
+    stashValues = new Object[stashCapacity];
+    stashSize = 0;
+    seed0 = nextRandom();
+    seed1 = nextRandom();
+  }
+
+  void expand(int newCapacity) {
+    checkCapacity(newCapacity);
+    rehash(newCapacity);
+  }
+
+  /**
+   * Moves every entry (and the pending one, if any) into a new table of {@code newCapacity} slots.
+   * Picks new hash functions until all of them fit. Every {@link #MAX_REHASHES} tries, the capacity
+   * is doubled, or the stash if the table is already far larger than the entries need.
+   */
+  void rehash(int newCapacity) {
+    Object[] oldKeys = keys;
+    Object[] oldValues = values;
+    Object[] oldStashKeys = stashKeys;
+    Object[] oldStashValues = stashValues;
+    int oldStashSize = stashSize;
+    Object k = pendingKey;
+    Object v = pendingValue;
+    int stashCapacity = STASH_SIZE;
+    for (int attempt = 1; ; ++attempt) {
+      if (attempt % (MAX_REHASHES + 1) == 0) {
+        if (newCapacity * loadFactor > 4.0 * (size + 1)) {
+          stashCapacity *= 2;
+        } else {
+          newCapacity *= 2;
+        }
+      }
+      allocate(newCapacity, stashCapacity);
+      if (placeAll(oldKeys, oldValues, oldKeys.length)
+          && placeAll(oldStashKeys, oldStashValues, oldStashSize)
+          && (k == null || place(k, v))) {
+        break;
+      }
+    }
+    pendingKey = null;
+    pendingValue = null;
+  }
+
+  boolean placeAll(Object[] fromKeys, Object[] fromValues, int length) {
+    for (int i = 0; i < length; ++i) {
+      if (fromKeys[i] != null && !place(fromKeys[i], fromValues[i])) return false;
+    }
+    return true;
+  }
+
+  int nextRandom() {
+    random ^= random << 13;
+    random ^= random >>> 17;
+    random ^= random << 5;
+    return random;
+  }
+
+  /** @return the first slot of the bucket that hash function {@code seed} picks for {@code k} */
+  int bucket(Object k, int seed) {
+    return (Hashing.mix(k.hashCode() ^ seed) & (capacity / BUCKET_SIZE - 1)) * BUCKET_SIZE;
+  }
+
+  /** @return a free slot of the bucket starting at slot {@code b}, or {@code -1} */
+  int freeSlot(int b) {
+    for (int i = b; i < b + BUCKET_SIZE; ++i) {
+      if (keys[i] == null) return i;
+    }
+    return -1;
+  }
+
+  /** @return a free slot in either bucket of {@code k}, or {@code -1} */
+  int freeSlot(Object k) {
+    int i = freeSlot(bucket(k, seed0));
+    return i >= 0 ? i : freeSlot(bucket(k, seed1));
+  }
+
+  static boolean matches(Object key, Object k) {
+    return key != null && (key == k || key.equals(k));
+  }
+
+  /**
+   * @return the slot holding {@code k} (already masked), {@code capacity + j} if it is in slot
+   *     {@code j} of the stash, or {@code -1}
+   */
+  int find(Object k) {
+    int b = bucket(k, seed0);
+    for (int i = b; i < b + BUCKET_SIZE; ++i) {
+      if (matches(keys[i], k)) return i;
+    }
+    b = bucket(k, seed1);
+    for (int i = b; i < b + BUCKET_SIZE; ++i) {
+      if (matches(keys[i], k)) return i;
+    }
+    for (int j = 0; j < stashSize; ++j) {
+      if (matches(stashKeys[j], k)) return capacity + j;
+    }
+    return -1;
+  }
+
+  /**
+   * Puts a new entry into the table, evicting other entries along the way if needed.
+   *
+   * @return {@code false} if some entry found no slot; it is then left in {@link #pendingKey}
+   */
+  boolean place(Object k, Object v) {
+    for (int kicks = 0; kicks < MAX_KICKS; ++kicks) {
+      int i = freeSlot(k);
+      if (i >= 0) {
+        keys[i] = k;
+        values[i] = v;
+        return true;
+      }
+      int r = nextRandom();
+      int victim = bucket(k, (r & 1) == 0 ? seed0 : seed1) + ((r >>> 1) & (BUCKET_SIZE - 1));
+      Object evictedKey = keys[victim];
+      Object evictedValue = values[victim];
+      keys[victim] = k;
+      values[victim] = v;
+      k = evictedKey;
+      v = evictedValue;
+    }
+    if (stashSize < stashKeys.length) {
+      stashKeys[stashSize] = k;
+      stashValues[stashSize++] = v;
+      return true;
+    }
+    pendingKey = k;
+    pendingValue = v;
+    return false;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Inserts an entry with {@code (key, value)} into this map. If a value with key {@code key}
+   * already existed, the old value is overwritten.
+   *
+   * @param key the key
+   * @param value the value
+   * @return the old value if {@code key} was present in the map, otherwise {@code null}.
+   */
+  @SuppressWarnings("unchecked")
+  public V insert(K key, V value) {
+    Object k = OpenAddressingMap.maskNull(key);
+    int i = find(k);
+    if (i >= 0) {
+      Object[] vs = i < capacity ? values : stashValues;
+      int j = i < capacity ? i : i - capacity;
+      V v = (V) vs[j];
+      vs[j] = value;
+      return v;
+    }
+    if ((double) (size + 1) / capacity > loadFactor) {
+      expand(capacity * 2);
+    }
+    if (!place(k, value)) {
+      rehash(capacity);
+    }
+    ++size;
+    return null;
+  }
+
+  /**
+   * Gets the value for {@code key}. Returns {@code null} if {@code key} is not found.
+   *
+   * @param key the key whose value to find
+   * @return the value for {@code key} or {@code null}
+   */
+  @SuppressWarnings("unchecked")
+  public V get(K key) {
+    int i = find(OpenAddressingMap.maskNull(key));
+    if (i < 0) return null;
+    return (V) (i < capacity ? values[i] : stashValues[i - capacity]);
+  }
+
+  /**
+   * Checks if this map contains an entry whose key is {@code key}.
+   *
+   * @param key the key to check
+   * @return {@code true} if the key is in this map, else {@code false}
+   */
+  public boolean hasKey(K key) {
+    return find(OpenAddressingMap.maskNull(key)) >= 0;
+  }
+
+  /**
+   * Delete the entry of a key, if it is present. Freeing a slot may let entries move from the
+   * stash back into the table.
+   *
+   * @param k key whose entry to delete if present
+   * @return {@code true} if key was found before deletion, else {@code false}
+   */
+  public boolean delete(K k) {
+    int i = find(OpenAddressingMap.maskNull(k));
+    if (i < 0) return false;
+    if (i < capacity) {
+      keys[i] = null;
+      values[i] = null;
+      unstash();
+    } else {
+      removeFromStash(i - capacity);
+    }
+    --size;
+    return true;
+  }
+
+  /** Moves stash entries into the table where their buckets have room. */
+  void unstash() {
+    for (int j = 0; j < stashSize; ) {
+      int i = freeSlot(stashKeys[j]);
+      if (i < 0) {
+        ++j;
+        continue;
+      }
+      keys[i] = stashKeys[j];
+      values[i] = stashValues[j];
+      removeFromStash(j);
+    }
+  }
+
+  void removeFromStash(int j) {
+    --stashSize;
+    stashKeys[j] = stashKeys[stashSize];
+    stashValues[j] = stashValues[stashSize];
+    stashKeys[stashSize] = null;
+    stashValues[stashSize] = null;
+  }
+}
@@ -625,12 +625,14 @@ public class DoublyLinkedList<E> implements List<E>, Collection<E> {
       return null;
     }
     if (index > size / 2) {
+      FlightEvents.indexWalk(getClass(), index, size, size - 1 - index);
       Node<E> node = tail;
       for (int i = size - 1; i > index; --i) {
         node = node.prev;
       }
       return node;
     }
+    FlightEvents.indexWalk(getClass(), index, size, index);
     Node<E> node = head;
     for (int i = 0; i < index; ++i) {
       node = node.next;
@@ -671,7 +673,8 @@ public class DoublyLinkedList<E> implements List<E>, Collection<E> {
     --size;
     if (node == head) {
       head = head.next;
-    } else if (node == tail) {
+    }
+    if (node == tail) {
       tail = tail.prev;
     }
     if (node.prev != null) {
@@ -682,6 +685,26 @@ public class DoublyLinkedList<E> implements List<E>, Collection<E> {
     }
   }
 
+  /** Links {@code node}, which must not be in any list, in as the new head. */
+  void linkFirst(Node<E> node) {
+    node.prev = null;
+    node.next = head;
+    if (head == null) {
+      tail = node;
+    } else {
+      head.prev = node;
+    }
+    head = node;
+    ++size;
+  }
+
+  /** Moves {@code node}, which must be in this list, to the front in O(1). */
+  void moveToFront(Node<E> node) {
+    if (node == head) return;
+    toss(node);
+    linkFirst(node);
+  }
+
   static class Node<E> {
     E val;
     Node<E> prev;
@@ -0,0 +1,159 @@
+package com.thomasbreydo.datastructures;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Cache whose entries expire a fixed time after they were last written, last used, or both. An
+ * expired entry is never returned. It is removed by a {@link TimingWheel} that every operation
+ * advances to the current time, so expired entries are cleaned up a few at a time instead of by a
+ * scan, and scheduling an entry costs O(1).
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class ExpiringCache<K, V> {
+  /** Duration that turns off expiring after a write or after an access. */
+  static final long NEVER = Long.MAX_VALUE;
+
+  final long expireAfterWriteNanos;
+  final long expireAfterAccessNanos;
+  /** Source of the current time, in nanoseconds. */
+  final LongSupplier ticker;
+  final Map<K, Node<K, V>> nodes = new Map<>();
+  final TimingWheel<Node<K, V>> wheel;
+
+  /**
+   * @param expireAfterWriteNanos how long an entry lives after it is inserted or overwritten, or
+   *     {@link #NEVER}
+   * @param expireAfterAccessNanos how long an entry lives after it is last written or read with
+   *     {@link #get}, or {@link #NEVER}
+   * @param ticker source of the current time, in nanoseconds
+   */
+  ExpiringCache(long expireAfterWriteNanos, long expireAfterAccessNanos, LongSupplier ticker) {
+    if (expireAfterWriteNanos <= 0 || expireAfterAccessNanos <= 0) {
+      throw new IllegalArgumentException();
+    }
+    this.expireAfterWriteNanos = expireAfterWriteNanos;
+    this.expireAfterAccessNanos = expireAfterAccessNanos;
+    this.ticker = ticker;
+    wheel = new TimingWheel<>(ticker.getAsLong(), node -> nodes.delete(node.key));
+  }
+
+  ExpiringCache(long expireAfterWriteNanos, long expireAfterAccessNanos) {
+    this(expireAfterWriteNanos, expireAfterAccessNanos, System::nanoTime);
+  }
+
+  /**
+   * Returns the number of entries, which may include expired entries that the timing wheel
+   * hasn't reached yet.
+   *
+   * @return the number of entries
+   */
+  public int size() {
+    wheel.advance(ticker.getAsLong());
+    return nodes.size();
+  }
+
+  boolean expires() {
+    return expireAfterWriteNanos != NEVER || expireAfterAccessNanos != NEVER;
+  }
+
+  /** Sets when {@code node}, written at {@code node.writeTime}, expires if used at {@code now}. */
+  void schedule(Node<K, V> node, long now) {
+    if (!expires()) return;
+    long sinceWrite = now - node.writeTime;
+    long left = Math.min(expireAfterWriteNanos - sinceWrite, expireAfterAccessNanos);
+    wheel.schedule(node, now + left);
+  }
+
+  /** @return the live node of {@code key}, after removing it if it has expired */
+  Node<K, V> liveNode(K key, long now) {
+    wheel.advance(now);
+    Node<K, V> node = nodes.get(key);
+    if (node == null) return null;
+    if (node.bucket != null && node.time - now <= 0) {
+      // the wheel only fires a bucket once the clock has passed all of it
+      wheel.cancel(node);
+      nodes.delete(key);
+      return null;
+    }
+    return node;
+  }
+
+  /**
+   * Gets the value for {@code key}, which counts as an access. Returns {@code null} if {@code key}
+   * is not found or has expired.
+   *
+   * @param key the key whose value to find
+   * @return the value for {@code key} or {@code null}
+   */
+  public V get(K key) {
+    long now = ticker.getAsLong();
+    Node<K, V> node = liveNode(key, now);
+    if (node == null) return null;
+    if (expireAfterAccessNanos != NEVER) {
+      schedule(node, now);
+    }
+    return node.value;
+  }
+
+  /**
+   * Checks if this cache contains an unexpired entry whose key is {@code key}, without counting as
+   * an access.
+   *
+   * @param key the key to check
+   * @return {@code true} if the key is in this cache, else {@code false}
+   */
+  public boolean hasKey(K key) {
+    return liveNode(key, ticker.getAsLong()) != null;
+  }
+
+  /**
+   * Inserts an entry with {@code (key, value)} into this cache. If a value with key {@code key}
+   * already existed, the old value is overwritten. Either way, the entry's time to live starts
+   * over.
+   *
+   * @param key the key
+   * @param value the value
+   * @return the old value if {@code key} was present and not expired, otherwise {@code null}.
+   */
+  public V insert(K key, V value) {
+    long now = ticker.getAsLong();
+    Node<K, V> node = liveNode(key, now);
+    V v = null;
+    if (node == null) {
+      node = new Node<>(key);
+      nodes.insert(key, node);
+    } else {
+      v = node.value;
+    }
+    node.value = value;
+    node.writeTime = now;
+    schedule(node, now);
+    return v;
+  }
+
+  /**
+   * Delete the entry of a key, if it is present.
+   *
+   * @param k key whose entry to delete if present
+   * @return {@code true} if key was found (and not expired) before deletion, else {@code false}
+   */
+  public boolean delete(K k) {
+    Node<K, V> node = liveNode(k, ticker.getAsLong());
+    if (node == null) return false;
+    wheel.cancel(node);
+    nodes.delete(k);
+    return true;
+  }
+
+  static final class Node<K, V> extends TimingWheel.Timer {
+    final K key;
+    V value;
+    long writeTime;
+
+    Node(K key) {
+      this.key = key;
+    }
+  }
+}
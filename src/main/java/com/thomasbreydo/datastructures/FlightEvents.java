@@ -0,0 +1,204 @@
+package com.thomasbreydo.datastructures;
+
+import java.util.Set;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.SettingControl;
+import jdk.jfr.SettingDefinition;
+
+/**
+ * Java Flight Recorder events for the slow paths of this package. They cost next to nothing while
+ * no recording has them enabled, since {@link Event#isEnabled} is then constant. {@link MapExpand}
+ * is on by default. The scan events are off by default and are turned on by a recording's
+ * settings, which can also change how long a scan must be to be recorded: {@code minProbes} for
+ * {@link BucketScan} and {@code minSteps} for {@link IndexWalk}. The names of these settings can't
+ * be {@code threshold}, since that is the built-in duration threshold of every event.
+ *
+ * <p>The collections only use the static methods of this class, which don't touch an event class
+ * unless {@link #AVAILABLE}. So on a runtime without {@code jdk.jfr}, such as Java 8 before update
+ * 262, the event classes are never loaded and the collections work as if no recording was running.
+ */
+final class FlightEvents {
+  static final String CATEGORY = "Data Structures";
+  /** Whether the runtime has the {@code jdk.jfr} module. */
+  static final boolean AVAILABLE = isAvailable();
+
+  private FlightEvents() {}
+
+  static boolean isAvailable() {
+    try {
+      Class.forName("jdk.jfr.Event", false, FlightEvents.class.getClassLoader());
+      return true;
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+
+  /** @return a started {@link MapExpand} to pass to {@link #endExpand}, or {@code null} */
+  static Object beginExpand() {
+    if (!AVAILABLE) return null;
+    MapExpand event = new MapExpand();
+    if (!event.isEnabled()) return null;
+    event.begin();
+    return event;
+  }
+
+  /** Records a resize started by {@link #beginExpand}, which returned {@code started}. */
+  static void endExpand(Object started, int oldCapacity, int newCapacity, int size) {
+    if (started == null) return;
+    MapExpand event = (MapExpand) started;
+    event.end();
+    if (event.shouldCommit()) {
+      event.oldCapacity = oldCapacity;
+      event.newCapacity = newCapacity;
+      event.size = size;
+      event.commit();
+    }
+  }
+
+  /** @return {@code true} if lookups should count their probes for {@link #bucketScan} */
+  static boolean bucketScanEnabled() {
+    return AVAILABLE && new BucketScan().isEnabled();
+  }
+
+  /** Records a lookup that compared {@code probes} entries, if that is enough to be recorded. */
+  static void bucketScan(int probes, boolean tree, int capacity) {
+    if (!AVAILABLE) return;
+    BucketScan event = new BucketScan();
+    if (!event.isEnabled()) return;
+    event.probes = probes;
+    event.tree = tree;
+    event.capacity = capacity;
+    if (event.shouldCommit()) {
+      event.commit();
+    }
+  }
+
+  /** Records a walk of {@code steps} nodes to {@code index}, if it is long enough. */
+  static void indexWalk(Class<?> listClass, int index, int size, int steps) {
+    if (!AVAILABLE) return;
+    IndexWalk event = new IndexWalk();
+    if (!event.isEnabled()) return;
+    event.listClass = listClass;
+    event.index = index;
+    event.size = size;
+    event.steps = steps;
+    if (event.shouldCommit()) {
+      event.commit();
+    }
+  }
+
+  @Name("com.thomasbreydo.datastructures.MapExpand")
+  @Label("Map Expand")
+  @Category(CATEGORY)
+  @Description("A Map was resized")
+  static final class MapExpand extends Event {
+    @Label("Old Capacity")
+    int oldCapacity;
+
+    @Label("New Capacity")
+    int newCapacity;
+
+    @Label("Size")
+    int size;
+  }
+
+  @Name("com.thomasbreydo.datastructures.BucketScan")
+  @Label("Bucket Scan")
+  @Category(CATEGORY)
+  @Description("A Map lookup compared its key with many entries")
+  @Enabled(false)
+  static final class BucketScan extends Event {
+    @Label("Entries Compared")
+    @Description("Including those of the old bucket during an incremental resize")
+    int probes;
+
+    @Label("Tree Bucket")
+    boolean tree;
+
+    @Label("Capacity")
+    int capacity;
+
+    @Label("Minimum Entries Compared")
+    @Name("minProbes")
+    @SettingDefinition
+    protected boolean minProbes(ProbeThreshold minProbes) {
+      return probes >= minProbes.value;
+    }
+  }
+
+  @Name("com.thomasbreydo.datastructures.IndexWalk")
+  @Label("Index Walk")
+  @Category(CATEGORY)
+  @Description("A linked list walked many nodes to reach an index")
+  @Enabled(false)
+  static final class IndexWalk extends Event {
+    @Label("List Class")
+    Class<?> listClass;
+
+    @Label("Index")
+    int index;
+
+    @Label("Size")
+    int size;
+
+    @Label("Nodes Walked")
+    int steps;
+
+    @Label("Minimum Nodes Walked")
+    @Name("minSteps")
+    @SettingDefinition
+    protected boolean minSteps(StepThreshold minSteps) {
+      return steps >= minSteps.value;
+    }
+  }
+
+  /** Setting for the smallest count an event must reach to be recorded. */
+  abstract static class CountThreshold extends SettingControl {
+    final long defaultValue;
+    volatile long value;
+
+    CountThreshold(long defaultValue) {
+      this.defaultValue = defaultValue;
+      value = defaultValue;
+    }
+
+    /** Recordings that ask for different thresholds all get what the lowest one asks for. */
+    @Override
+    public String combine(Set<String> values) {
+      long min = Long.MAX_VALUE;
+      for (String v : values) {
+        min = Math.min(min, Long.parseLong(v));
+      }
+      return String.valueOf(values.isEmpty() ? defaultValue : min);
+    }
+
+    @Override
+    public void setValue(String value) {
+      this.value = Long.parseLong(value);
+    }
+
+    @Override
+    public String getValue() {
+      return String.valueOf(value);
+    }
+  }
+
+  /** By default, as many entries as a bucket has when it turns into a tree. */
+  public static final class ProbeThreshold extends CountThreshold {
+    public ProbeThreshold() {
+      super(Map.TREEIFY_THRESHOLD);
+    }
+  }
+
+  /** By default, walks of over a thousand nodes. */
+  public static final class StepThreshold extends CountThreshold {
+    public StepThreshold() {
+      super(1024);
+    }
+  }
+}
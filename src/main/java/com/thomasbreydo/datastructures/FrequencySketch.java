@@ -0,0 +1,69 @@
+package com.thomasbreydo.datastructures;
+
+/**
+ * Count-min sketch that estimates how often each hash was seen, using 4-bit counters (so estimates
+ * stop at 15). Every hash increments one counter in each of {@link #DEPTH} rows, and its estimate
+ * is the smallest of them, so collisions can only make it too high.
+ *
+ * <p>Once {@code sampleSize} increments have been made, every counter is halved. That lets the
+ * sketch forget keys that were popular long ago.
+ */
+final class FrequencySketch {
+  static final int DEPTH = 4;
+  static final int[] SEEDS = {0x97cb3127, 0xb492b66f, 0x9ae16a3b, 0xcbf29ce4};
+  /** Clears the bit each counter receives from its neighbor when a word is shifted right. */
+  static final long RESET_MASK = 0x7777777777777777L;
+
+  /** Sixteen 4-bit counters per word. */
+  final long[] table;
+  final int sampleSize;
+  int additions;
+
+  /** @param maximumSize number of keys the sketch should tell apart well */
+  FrequencySketch(int maximumSize) {
+    if (maximumSize <= 0) throw new IllegalArgumentException();
+    table = new long[Hashing.tableSize(Math.min(maximumSize, Hashing.MAX_CAPACITY / 16))];
+    sampleSize = (int) Math.min(10L * maximumSize, Integer.MAX_VALUE);
+  }
+
+  /** @return the index of the counter of {@code hash} in row {@code row} */
+  int counter(int hash, int row) {
+    return Hashing.mix(hash ^ SEEDS[row]) & (table.length * 16 - 1);
+  }
+
+  int get(int counter) {
+    return (int) (table[counter >>> 4] >>> ((counter & 15) << 2)) & 15;
+  }
+
+  /** @return the estimated number of times {@code hash} was seen since the counters were halved */
+  int frequency(int hash) {
+    int min = 15;
+    for (int row = 0; row < DEPTH; ++row) {
+      min = Math.min(min, get(counter(hash, row)));
+    }
+    return min;
+  }
+
+  /** Records that {@code hash} was seen once more. */
+  void increment(int hash) {
+    boolean added = false;
+    for (int row = 0; row < DEPTH; ++row) {
+      int counter = counter(hash, row);
+      if (get(counter) < 15) {
+        table[counter >>> 4] += 1L << ((counter & 15) << 2);
+        added = true;
+      }
+    }
+    if (added && ++additions == sampleSize) {
+      reset();
+    }
+  }
+
+  /** Halves every counter. */
+  void reset() {
+    for (int i = 0; i < table.length; ++i) {
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    additions /= 2;
+  }
+}
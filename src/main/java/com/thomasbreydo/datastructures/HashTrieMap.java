@@ -0,0 +1,441 @@
+package com.thomasbreydo.datastructures;
+
+/**
+ * Immutable hash-map, stored as a hash array mapped trie (Bagwell). {@link #with} and {@link
+ * #without} return a new map and leave this one unchanged. Each level of the trie consumes 5 bits
+ * of the hash, so they only copy the O(log32 n) nodes on the path to the key and share every other
+ * node with this map. Since a map never changes, it can be read from any thread without locking.
+ *
+ * <p>For building a map from many entries, use a {@link Builder}: it changes the nodes it created
+ * in place instead of copying them for every entry.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public final class HashTrieMap<K, V> {
+  static final int BITS = 5;
+  static final int MASK = (1 << BITS) - 1;
+  static final Node EMPTY_NODE = new BitmapNode(null, 0, new Object[0]);
+  static final HashTrieMap<?, ?> EMPTY = new HashTrieMap<>(EMPTY_NODE, 0);
+  /** Returned by {@link Node#find} for a missing key, since {@code null} is a valid value. */
+  static final Object NOT_FOUND = new Object();
+
+  final Node root;
+  final int size;
+
+  HashTrieMap(Node root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  /**
+   * @param <K> key type
+   * @param <V> value type
+   * @return the empty map
+   */
+  @SuppressWarnings("unchecked")
+  public static <K, V> HashTrieMap<K, V> empty() {
+    return (HashTrieMap<K, V>) EMPTY;
+  }
+
+  /**
+   * @param <K> key type
+   * @param <V> value type
+   * @return a builder that starts out empty
+   */
+  public static <K, V> Builder<K, V> builder() {
+    return new Builder<>(EMPTY_NODE, 0);
+  }
+
+  /** @return a builder that starts out with the entries of this map */
+  public Builder<K, V> toBuilder() {
+    return new Builder<>(root, size);
+  }
+
+  static int hash(Object k) {
+    return Hashing.mix(k.hashCode());
+  }
+
+  /** @return the bit of {@code hash} in the bitmap of a node on the level of {@code shift} */
+  static int bit(int hash, int shift) {
+    return 1 << ((hash >>> shift) & MASK);
+  }
+
+  static boolean equal(Object a, Object b) {
+    return a == b || a.equals(b);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Gets the value for {@code key}. Returns {@code null} if {@code key} is not found.
+   *
+   * @param key the key whose value to find
+   * @return the value for {@code key} or {@code null}
+   */
+  @SuppressWarnings("unchecked")
+  public V get(K key) {
+    Object k = OpenAddressingMap.maskNull(key);
+    Object v = root.find(k, hash(k), 0);
+    return v == NOT_FOUND ? null : (V) v;
+  }
+
+  /**
+   * Checks if this map contains an entry whose key is {@code key}.
+   *
+   * @param key the key to check
+   * @return {@code true} if the key is in this map, else {@code false}
+   */
+  public boolean hasKey(K key) {
+    Object k = OpenAddressingMap.maskNull(key);
+    return root.find(k, hash(k), 0) != NOT_FOUND;
+  }
+
+  /**
+   * Returns a map with the entries of this one, plus {@code (key, value)}. If a value with key
+   * {@code key} already existed, the new map has {@code value} instead.
+   *
+   * @param key the key
+   * @param value the value
+   * @return the new map, or this map if it already maps {@code key} to {@code value}
+   */
+  public HashTrieMap<K, V> with(K key, V value) {
+    Object k = OpenAddressingMap.maskNull(key);
+    boolean[] added = {false};
+    Node newRoot = root.with(null, 0, hash(k), k, value, added);
+    if (newRoot == root) return this;
+    return new HashTrieMap<>(newRoot, added[0] ? size + 1 : size);
+  }
+
+  /**
+   * Returns a map with the entries of this one, except the entry of {@code key}.
+   *
+   * @param key key whose entry to leave out
+   * @return the new map, or this map if {@code key} is not in it
+   */
+  public HashTrieMap<K, V> without(K key) {
+    Object k = OpenAddressingMap.maskNull(key);
+    boolean[] removed = {false};
+    Node newRoot = root.without(null, 0, hash(k), k, removed);
+    if (!removed[0]) return this;
+    return newRoot == null ? empty() : new HashTrieMap<>(newRoot, size - 1);
+  }
+
+  /**
+   * Node of the trie. All nodes are immutable, except the ones whose {@code edit} token is the
+   * token of the {@link Builder} making the change.
+   */
+  abstract static class Node {
+    /** @return the value of {@code key}, or {@link #NOT_FOUND} */
+    abstract Object find(Object key, int hash, int shift);
+
+    /**
+     * @param edit token of the builder making the change, or {@code null} to copy every changed
+     *     node
+     * @param added set to {@code true} if {@code key} wasn't in this node yet
+     * @return the changed node, or this node if nothing changed
+     */
+    abstract Node with(Object edit, int shift, int hash, Object key, Object value, boolean[] added);
+
+    /**
+     * @param removed set to {@code true} if {@code key} was in this node
+     * @return the changed node, {@code null} if the node is left empty, or this node if {@code
+     *     key} wasn't in it
+     */
+    abstract Node without(Object edit, int shift, int hash, Object key, boolean[] removed);
+  }
+
+  /**
+   * Node with a slot for each of the 32 values of its 5 bits of the hash. Only the slots in use
+   * are stored, in {@code array}: slot {@code i} takes {@code array[2 * i]} and {@code array[2 * i
+   * + 1]}, which hold a key and its value, or {@code null} and a child node.
+   */
+  static final class BitmapNode extends Node {
+    final Object edit;
+    int bitmap;
+    /** May be longer than needed (with {@code null}s at the end) if {@code edit} is set. */
+    Object[] array;
+
+    BitmapNode(Object edit, int bitmap, Object[] array) {
+      this.edit = edit;
+      this.bitmap = bitmap;
+      this.array = array;
+    }
+
+    /** @return the slot of {@code bit}, which is the number of slots before it */
+    int index(int bit) {
+      return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    /** @return this node if {@code edit} may change it, else a copy that it may change */
+    BitmapNode editable(Object edit) {
+      if (edit != null && this.edit == edit) return this;
+      int n = Integer.bitCount(bitmap);
+      Object[] copy = new Object[edit == null ? 2 * n : 2 * (n + 1)];
+      System.arraycopy(array, 0, copy, 0, 2 * n);
+      return new BitmapNode(edit, bitmap, copy);
+    }
+
+    @Override
+    Object find(Object key, int hash, int shift) {
+      int bit = bit(hash, shift);
+      if ((bitmap & bit) == 0) return NOT_FOUND;
+      int i = 2 * index(bit);
+      Object k = array[i];
+      if (k == null) return ((Node) array[i + 1]).find(key, hash, shift + BITS);
+      return equal(k, key) ? array[i + 1] : NOT_FOUND;
+    }
+
+    @Override
+    Node with(Object edit, int shift, int hash, Object key, Object value, boolean[] added) {
+      int bit = bit(hash, shift);
+      int i = 2 * index(bit);
+      if ((bitmap & bit) == 0) {
+        added[0] = true;
+        return insertSlot(edit, bit, i, key, value);
+      }
+      Object k = array[i];
+      Object v = array[i + 1];
+      if (k == null) {
+        Node child = ((Node) v).with(edit, shift + BITS, hash, key, value, added);
+        return child == v ? this : editable(edit).set(i + 1, child);
+      }
+      if (equal(k, key)) {
+        return v == value ? this : editable(edit).set(i + 1, value);
+      }
+      added[0] = true;
+      Node child = pair(edit, shift + BITS, hash(k), k, v, hash, key, value);
+      return editable(edit).set(i, null).set(i + 1, child);
+    }
+
+    BitmapNode set(int i, Object o) {
+      array[i] = o;
+      return this;
+    }
+
+    BitmapNode insertSlot(Object edit, int bit, int i, Object key, Object value) {
+      int n = Integer.bitCount(bitmap);
+      BitmapNode node;
+      if (edit != null && this.edit == edit && array.length >= 2 * (n + 1)) {
+        node = this;
+        System.arraycopy(array, i, array, i + 2, 2 * n - i);
+      } else {
+        // a builder's nodes get room to grow, so a run of inserts doesn't copy on every one
+        Object[] a = new Object[edit == null ? 2 * (n + 1) : 2 * Math.min(2 * (n + 1), 32)];
+        System.arraycopy(array, 0, a, 0, i);
+        System.arraycopy(array, i, a, i + 2, 2 * n - i);
+        node = edit != null && this.edit == edit ? this : new BitmapNode(edit, bitmap, a);
+        node.array = a;
+      }
+      node.bitmap |= bit;
+      node.array[i] = key;
+      node.array[i + 1] = value;
+      return node;
+    }
+
+    @Override
+    Node without(Object edit, int shift, int hash, Object key, boolean[] removed) {
+      int bit = bit(hash, shift);
+      if ((bitmap & bit) == 0) return this;
+      int i = 2 * index(bit);
+      Object k = array[i];
+      Object v = array[i + 1];
+      if (k == null) {
+        Node child = ((Node) v).without(edit, shift + BITS, hash, key, removed);
+        if (child == v) return this;
+        if (child != null) return editable(edit).set(i + 1, child);
+      } else if (equal(k, key)) {
+        removed[0] = true;
+      } else {
+        return this;
+      }
+      if (bitmap == bit) return null;
+      int n = Integer.bitCount(bitmap);
+      if (edit != null && this.edit == edit) {
+        System.arraycopy(array, i + 2, array, i, 2 * n - i - 2);
+        array[2 * n - 2] = null;
+        array[2 * n - 1] = null;
+        bitmap ^= bit;
+        return this;
+      }
+      Object[] a = new Object[2 * (n - 1)];
+      System.arraycopy(array, 0, a, 0, i);
+      System.arraycopy(array, i + 2, a, i, 2 * n - i - 2);
+      return new BitmapNode(edit, bitmap ^ bit, a);
+    }
+  }
+
+  /** @return a node holding both entries, whose keys are different */
+  static Node pair(
+      Object edit, int shift, int h1, Object k1, Object v1, int h2, Object k2, Object v2) {
+    if (h1 == h2) return new CollisionNode(edit, h1, new Object[] {k1, v1, k2, v2});
+    int b1 = bit(h1, shift);
+    int b2 = bit(h2, shift);
+    if (b1 == b2) {
+      Node child = pair(edit, shift + BITS, h1, k1, v1, h2, k2, v2);
+      return new BitmapNode(edit, b1, new Object[] {null, child});
+    }
+    boolean firstIsFirst = ((h1 >>> shift) & MASK) < ((h2 >>> shift) & MASK);
+    Object[] a = firstIsFirst ? new Object[] {k1, v1, k2, v2} : new Object[] {k2, v2, k1, v1};
+    return new BitmapNode(edit, b1 | b2, a);
+  }
+
+  /** Node holding the entries of keys whose hashes are all equal, as key-value pairs. */
+  static final class CollisionNode extends Node {
+    final Object edit;
+    final int hash;
+    Object[] array;
+
+    CollisionNode(Object edit, int hash, Object[] array) {
+      this.edit = edit;
+      this.hash = hash;
+      this.array = array;
+    }
+
+    int indexOf(Object key) {
+      for (int i = 0; i < array.length; i += 2) {
+        if (equal(array[i], key)) return i;
+      }
+      return -1;
+    }
+
+    @Override
+    Object find(Object key, int hash, int shift) {
+      if (hash != this.hash) return NOT_FOUND;
+      int i = indexOf(key);
+      return i < 0 ? NOT_FOUND : array[i + 1];
+    }
+
+    @Override
+    Node with(Object edit, int shift, int hash, Object key, Object value, boolean[] added) {
+      if (hash != this.hash) {
+        // the hashes only share the bits above this level, so split them up in a bitmap node
+        BitmapNode parent = new BitmapNode(edit, bit(this.hash, shift), new Object[] {null, this});
+        return parent.with(edit, shift, hash, key, value, added);
+      }
+      int i = indexOf(key);
+      CollisionNode node = edit != null && this.edit == edit ? this : null;
+      if (i >= 0) {
+        if (array[i + 1] == value) return this;
+        if (node == null) node = new CollisionNode(edit, hash, array.clone());
+        node.array[i + 1] = value;
+        return node;
+      }
+      added[0] = true;
+      Object[] a = new Object[array.length + 2];
+      System.arraycopy(array, 0, a, 0, array.length);
+      a[array.length] = key;
+      a[array.length + 1] = value;
+      if (node == null) return new CollisionNode(edit, hash, a);
+      node.array = a;
+      return node;
+    }
+
+    @Override
+    Node without(Object edit, int shift, int hash, Object key, boolean[] removed) {
+      int i = hash == this.hash ? indexOf(key) : -1;
+      if (i < 0) return this;
+      removed[0] = true;
+      if (array.length == 2) return null;
+      Object[] a = new Object[array.length - 2];
+      System.arraycopy(array, 0, a, 0, i);
+      System.arraycopy(array, i + 2, a, i, array.length - i - 2);
+      if (edit != null && this.edit == edit) {
+        array = a;
+        return this;
+      }
+      return new CollisionNode(edit, hash, a);
+    }
+  }
+
+  /**
+   * Mutable map for building a {@link HashTrieMap} quickly. It starts out sharing all nodes with
+   * the map it was created from and copies a node the first time it changes it; after that, the
+   * copy is changed in place. {@link #build} ends the builder, so the map it returns can never
+   * change.
+   *
+   * @param <K> key type
+   * @param <V> value type
+   */
+  public static final class Builder<K, V> {
+    /** Marks the nodes this builder may change, or {@code null} once it has been built. */
+    Object edit = new Object();
+    Node root;
+    int size;
+
+    Builder(Node root, int size) {
+      this.root = root;
+      this.size = size;
+    }
+
+    void checkNotBuilt() {
+      if (edit == null) throw new IllegalStateException("builder was already built");
+    }
+
+    public int size() {
+      return size;
+    }
+
+    /**
+     * Gets the value for {@code key}. Returns {@code null} if {@code key} is not found.
+     *
+     * @param key the key whose value to find
+     * @return the value for {@code key} or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+      Object k = OpenAddressingMap.maskNull(key);
+      Object v = root.find(k, hash(k), 0);
+      return v == NOT_FOUND ? null : (V) v;
+    }
+
+    /**
+     * Inserts an entry with {@code (key, value)}. If a value with key {@code key} already existed,
+     * the old value is overwritten.
+     *
+     * @param key the key
+     * @param value the value
+     * @return this builder
+     * @throws IllegalStateException if {@link #build} was already called
+     */
+    public Builder<K, V> insert(K key, V value) {
+      checkNotBuilt();
+      Object k = OpenAddressingMap.maskNull(key);
+      boolean[] added = {false};
+      root = root.with(edit, 0, hash(k), k, value, added);
+      if (added[0]) ++size;
+      return this;
+    }
+
+    /**
+     * Delete the entry of a key, if it is present.
+     *
+     * @param key key whose entry to delete if present
+     * @return this builder
+     * @throws IllegalStateException if {@link #build} was already called
+     */
+    public Builder<K, V> delete(K key) {
+      checkNotBuilt();
+      Object k = OpenAddressingMap.maskNull(key);
+      boolean[] removed = {false};
+      Node newRoot = root.without(edit, 0, hash(k), k, removed);
+      root = newRoot == null ? EMPTY_NODE : newRoot;
+      if (removed[0]) --size;
+      return this;
+    }
+
+    /**
+     * Ends this builder.
+     *
+     * @return a map with the entries of this builder
+     * @throws IllegalStateException if {@link #build} was already called
+     */
+    public HashTrieMap<K, V> build() {
+      checkNotBuilt();
+      edit = null;
+      return size == 0 ? empty() : new HashTrieMap<>(root, size);
+    }
+  }
+}
@@ -0,0 +1,225 @@
+package com.thomasbreydo.datastructures;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/** Hash helpers shared by the hash tables that use power-of-two capacities. */
+final class Hashing {
+  static final int MAX_CAPACITY = 1 << 30;
+  /**
+   * Picked when the program starts and mixed into the content hashes of {@code byte[]} and {@link
+   * CharSequence} keys, so that keys with colliding hashes can't be worked out in advance.
+   */
+  static final long SEED = ThreadLocalRandom.current().nextLong();
+
+  private Hashing() {}
+
+  /**
+   * Spreads the bits of {@code h} so that its low bits depend on all of its bits (this is the
+   * murmur3 finalizer). Tables that index with {@code h & (capacity - 1)} need this because many
+   * {@code hashCode}s only differ in their high bits.
+   *
+   * @param h hash to mix
+   * @return the mixed hash
+   */
+  static int mix(int h) {
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+
+  /**
+   * Mixes all 64 bits of {@code h} into a 32-bit hash.
+   *
+   * @param h hash to mix
+   * @return the mixed hash
+   */
+  static int mix(long h) {
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return (int) h;
+  }
+
+  /**
+   * Hashes {@code length} bytes of {@code buf}, starting at {@code offset}, eight bytes at a time.
+   * Only absolute reads are used, so the position of {@code buf} doesn't matter or change. The
+   * result only depends on the bytes and {@code seed}.
+   *
+   * @param buf buffer to read
+   * @param offset index of the first byte to hash
+   * @param length number of bytes to hash
+   * @param seed value to start from; {@code 0} gives a hash that is the same in every run, as a
+   *     file that stores hashes needs
+   * @return the hash of the bytes
+   */
+  static int hash(ByteBuffer buf, int offset, int length, long seed) {
+    long h = 0x9e3779b97f4a7c15L ^ seed ^ length;
+    int i = 0;
+    for (; i + 8 <= length; i += 8) {
+      h ^= buf.getLong(offset + i) * 0xc2b2ae3d27d4eb4fL;
+      h = Long.rotateLeft(h, 31) * 0x9e3779b97f4a7c15L;
+    }
+    for (; i < length; ++i) {
+      h = (h ^ (buf.get(offset + i) & 0xff)) * 0x100000001b3L;
+    }
+    return mix(h);
+  }
+
+  /**
+   * Hashes the contents of {@code bytes} the same way as {@link #hash(ByteBuffer, int, int, long)}
+   * with {@link #SEED}, with eight bytes read into each {@code long} without allocating.
+   *
+   * @param bytes bytes to hash
+   * @return the hash of the bytes
+   */
+  static int hash(byte[] bytes) {
+    int length = bytes.length;
+    long h = 0x9e3779b97f4a7c15L ^ SEED ^ length;
+    int i = 0;
+    for (; i + 8 <= length; i += 8) {
+      h ^= getLong(bytes, i) * 0xc2b2ae3d27d4eb4fL;
+      h = Long.rotateLeft(h, 31) * 0x9e3779b97f4a7c15L;
+    }
+    for (; i < length; ++i) {
+      h = (h ^ (bytes[i] & 0xff)) * 0x100000001b3L;
+    }
+    return mix(h);
+  }
+
+  /** @return the eight bytes of {@code bytes} from {@code i} on, big-endian like a ByteBuffer */
+  static long getLong(byte[] bytes, int i) {
+    return (bytes[i] & 0xffL) << 56
+        | (bytes[i + 1] & 0xffL) << 48
+        | (bytes[i + 2] & 0xffL) << 40
+        | (bytes[i + 3] & 0xffL) << 32
+        | (bytes[i + 4] & 0xffL) << 24
+        | (bytes[i + 5] & 0xffL) << 16
+        | (bytes[i + 6] & 0xffL) << 8
+        | (bytes[i + 7] & 0xffL);
+  }
+
+  /**
+   * Hashes the characters of {@code chars}, four of them per {@code long}, starting from {@link
+   * #SEED}. Sequences with the same characters get the same hash, whatever their class.
+   *
+   * @param chars characters to hash
+   * @return the hash of the characters
+   */
+  static int hash(CharSequence chars) {
+    int length = chars.length();
+    long h = 0x9e3779b97f4a7c15L ^ SEED ^ length;
+    int i = 0;
+    for (; i + 4 <= length; i += 4) {
+      long word =
+          (long) chars.charAt(i) << 48
+              | (long) chars.charAt(i + 1) << 32
+              | (long) chars.charAt(i + 2) << 16
+              | chars.charAt(i + 3);
+      h ^= word * 0xc2b2ae3d27d4eb4fL;
+      h = Long.rotateLeft(h, 31) * 0x9e3779b97f4a7c15L;
+    }
+    for (; i < length; ++i) {
+      h = (h ^ chars.charAt(i)) * 0x100000001b3L;
+    }
+    return mix(h);
+  }
+
+  /** @return {@code true} if {@code a} and {@code b} have the same characters */
+  static boolean contentEquals(CharSequence a, CharSequence b) {
+    if (a == b) return true;
+    if (a == null || b == null || a.length() != b.length()) return false;
+    for (int i = 0; i < a.length(); ++i) {
+      if (a.charAt(i) != b.charAt(i)) return false;
+    }
+    return true;
+  }
+
+  /** {@link HashingStrategy#natural}. */
+  static final class Natural implements HashingStrategy<Object> {
+    static final Natural INSTANCE = new Natural();
+
+    @Override
+    public int hash(Object key) {
+      return Objects.hashCode(key);
+    }
+
+    @Override
+    public boolean equals(Object a, Object b) {
+      return Objects.equals(a, b);
+    }
+
+    @Override
+    public boolean consistentWithCompareTo() {
+      return true;
+    }
+  }
+
+  /** {@link HashingStrategy#bytes}. */
+  static final class Bytes implements HashingStrategy<byte[]> {
+    static final Bytes INSTANCE = new Bytes();
+
+    @Override
+    public int hash(byte[] key) {
+      return key == null ? 0 : Hashing.hash(key);
+    }
+
+    @Override
+    public boolean equals(byte[] a, byte[] b) {
+      return Arrays.equals(a, b);
+    }
+  }
+
+  /** {@link HashingStrategy#strings}. */
+  static final class Strings implements HashingStrategy<String> {
+    static final Strings INSTANCE = new Strings();
+
+    /** {@link String#hashCode} is computed once and cached in the string, unlike a content hash. */
+    @Override
+    public int hash(String key) {
+      return key == null ? 0 : key.hashCode();
+    }
+
+    @Override
+    public boolean equals(String a, String b) {
+      return Objects.equals(a, b);
+    }
+
+    @Override
+    public boolean consistentWithCompareTo() {
+      return true;
+    }
+  }
+
+  /** {@link HashingStrategy#charSequences}. */
+  static final class CharSequences implements HashingStrategy<CharSequence> {
+    static final CharSequences INSTANCE = new CharSequences();
+
+    @Override
+    public int hash(CharSequence key) {
+      return key == null ? 0 : Hashing.hash(key);
+    }
+
+    @Override
+    public boolean equals(CharSequence a, CharSequence b) {
+      return contentEquals(a, b);
+    }
+  }
+
+  /**
+   * @param capacity requested capacity ({@code capacity > 0})
+   * @return the smallest power of two that is {@code >= capacity}
+   */
+  static int tableSize(int capacity) {
+    if (capacity <= 0) throw new IllegalArgumentException();
+    if (capacity >= MAX_CAPACITY) return MAX_CAPACITY;
+    return capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+  }
+}
@@ -0,0 +1,65 @@
+package com.thomasbreydo.datastructures;
+
+/**
+ * How a {@link Map} or {@link Set} hashes and compares its keys, in place of their own {@code
+ * hashCode} and {@code equals}. The map mixes the bits of every hash before using it, so a strategy
+ * only has to make different keys likely to get different hashes.
+ *
+ * @param <K> key type
+ */
+public interface HashingStrategy<K> {
+  /**
+   * @param key key to hash, which may be {@code null}
+   * @return the hash of {@code key}, equal for keys that are {@link #equals}
+   */
+  int hash(K key);
+
+  /** @return {@code true} if {@code a} and {@code b} are the same key */
+  boolean equals(K a, K b);
+
+  /**
+   * Whether a {@link Map} may order keys with colliding hashes by {@code compareTo}, when both are
+   * {@link Comparable}s of the same class. This needs {@code compareTo} to return {@code 0} exactly
+   * for the keys this strategy considers equal; without it, a bucket with many colliding keys is
+   * searched one key at a time.
+   *
+   * @return {@code true} if {@code compareTo} is consistent with {@link #equals}
+   */
+  default boolean consistentWithCompareTo() {
+    return false;
+  }
+
+  /** @return the strategy that uses {@code hashCode} and {@code equals} */
+  @SuppressWarnings("unchecked")
+  static <K> HashingStrategy<K> natural() {
+    return (HashingStrategy<K>) Hashing.Natural.INSTANCE;
+  }
+
+  /**
+   * @return a strategy that hashes and compares the contents of {@code byte[]} keys, eight bytes
+   *     at a time, with a seed picked when the program starts. Arrays aren't {@link Comparable},
+   *     so colliding keys can't be ordered; the seed makes such keys hard to pick in advance.
+   */
+  static HashingStrategy<byte[]> bytes() {
+    return Hashing.Bytes.INSTANCE;
+  }
+
+  /**
+   * @return a strategy for {@code String} keys that uses the hash code each string caches, so a
+   *     lookup only reads the characters of the keys it compares with. That hash code is the same
+   *     in every run, so colliding keys are ordered by {@code compareTo}, as with {@link
+   *     #natural}.
+   */
+  static HashingStrategy<String> strings() {
+    return Hashing.Strings.INSTANCE;
+  }
+
+  /**
+   * @return a strategy that hashes and compares the characters of {@link CharSequence} keys, so
+   *     that e.g. a {@link StringBuilder} can be a key without being copied into a {@code String}.
+   *     Like {@link #bytes}, the hash is seeded, since keys of different classes can't be ordered.
+   */
+  static HashingStrategy<CharSequence> charSequences() {
+    return Hashing.CharSequences.INSTANCE;
+  }
+}
@@ -0,0 +1,168 @@
+package com.thomasbreydo.datastructures;
+
+/**
+ * Hash-map from {@code int} to {@code int} with the same operations as {@link Map}. Keys and values
+ * are stored unboxed in two flat arrays (see {@link OpenAddressingMap}), so no operation allocates.
+ * A missing value is reported as {@code noEntryValue} instead of {@code null}.
+ */
+public class IntIntMap {
+  static final int DEFAULT_CAPACITY = 16;
+  static final double DEFAULT_LOAD_FACTOR = 0.5;
+  final double loadFactor;
+  /** Returned by {@link #get} and {@link #insert} when there is no entry for the key. */
+  final int noEntryValue;
+  int size;
+  int capacity;
+  int[] keys;
+  int[] values;
+  /** A {@code 0} in {@code keys} marks a free slot, so the entry for key {@code 0} is kept here. */
+  boolean hasZeroKey;
+  int zeroValue;
+
+  IntIntMap(int capacity, double loadFactor, int noEntryValue) {
+    checkCapacity(capacity);
+    if (!(loadFactor > 0 && loadFactor < 1)) throw new IllegalArgumentException();
+    this.loadFactor = loadFactor;
+    this.noEntryValue = noEntryValue;
+    this.capacity = Hashing.tableSize(capacity);
+    keys = new int[this.capacity];
+    values = new int[this.capacity];
+  }
+
+  IntIntMap(int capacity, double loadFactor) {
+    this(capacity, loadFactor, 0);
+  }
+
+  IntIntMap(int capacity) {
+    this(capacity, DEFAULT_LOAD_FACTOR);
+  }
+
+  IntIntMap() {
+    this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+  }
+
+  void checkCapacity(int capacity) {
+    if (capacity <= 0) throw new IllegalArgumentException();
+  }
+
+  void expand(int newCapacity) {
+    checkCapacity(newCapacity);
+    int[] oldKeys = keys;
+    int[] oldValues = values;
+    capacity = Hashing.tableSize(newCapacity);
+    keys = new int[capacity];
+    values = new int[capacity];
+    for (int i = 0; i < oldKeys.length; ++i) {
+      if (oldKeys[i] != 0) {
+        int j = slot(oldKeys[i]);
+        while (keys[j] != 0) {
+          j = (j + 1) & (capacity - 1);
+        }
+        keys[j] = oldKeys[i];
+        values[j] = oldValues[i];
+      }
+    }
+  }
+
+  int slot(int key) {
+    return Hashing.mix(key) & (capacity - 1);
+  }
+
+  /** @return the slot holding {@code key} ({@code != 0}), or the free slot that ends its probe */
+  int probe(int key) {
+    int i = slot(key);
+    while (keys[i] != 0 && keys[i] != key) {
+      i = (i + 1) & (capacity - 1);
+    }
+    return i;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Inserts an entry with {@code (key, value)} into this map. If a value with key {@code key}
+   * already existed, the old value is overwritten.
+   *
+   * @param key the key
+   * @param value the value
+   * @return the old value if {@code key} was present in the map, otherwise {@code noEntryValue}
+   */
+  public int insert(int key, int value) {
+    if (key == 0) {
+      int old = hasZeroKey ? zeroValue : noEntryValue;
+      if (!hasZeroKey) {
+        hasZeroKey = true;
+        ++size;
+      }
+      zeroValue = value;
+      return old;
+    }
+    if ((double) (size + 1) / capacity > loadFactor) {
+      expand(capacity * 2);
+    }
+    int i = probe(key);
+    if (keys[i] == 0) {
+      keys[i] = key;
+      values[i] = value;
+      ++size;
+      return noEntryValue;
+    }
+    int v = values[i];
+    values[i] = value;
+    return v;
+  }
+
+  /**
+   * Gets the value for {@code key}. Returns {@code noEntryValue} if {@code key} is not found.
+   *
+   * @param key the key whose value to find
+   * @return the value for {@code key} or {@code noEntryValue}
+   */
+  public int get(int key) {
+    if (key == 0) return hasZeroKey ? zeroValue : noEntryValue;
+    int i = probe(key);
+    return keys[i] == 0 ? noEntryValue : values[i];
+  }
+
+  /**
+   * Checks if this map contains an entry whose key is {@code key}.
+   *
+   * @param key the key to check
+   * @return {@code true} if the key is in this map, else {@code false}
+   */
+  public boolean hasKey(int key) {
+    if (key == 0) return hasZeroKey;
+    return keys[probe(key)] != 0;
+  }
+
+  /**
+   * Delete the entry of a key, if it is present.
+   *
+   * @param k key whose entry to delete if present
+   * @return {@code true} if key was found before deletion, else {@code false}
+   */
+  public boolean delete(int k) {
+    if (k == 0) {
+      if (!hasZeroKey) return false;
+      hasZeroKey = false;
+      --size;
+      return true;
+    }
+    int hole = probe(k);
+    if (keys[hole] == 0) return false;
+    int mask = capacity - 1;
+    for (int i = (hole + 1) & mask; keys[i] != 0; i = (i + 1) & mask) {
+      // see OpenAddressingMap.delete
+      if (((i - slot(keys[i])) & mask) >= ((i - hole) & mask)) {
+        keys[hole] = keys[i];
+        values[hole] = values[i];
+        hole = i;
+      }
+    }
+    keys[hole] = 0;
+    --size;
+    return true;
+  }
+}
@@ -0,0 +1,300 @@
+package com.thomasbreydo.datastructures;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Thread-safe cache that loads missing values with a {@link Loader}. Every key maps to a {@link
+ * CompletableFuture} in a {@link ConcurrentMap}, which is stored before the load starts. So when
+ * many threads miss the same key at once, only the one whose future made it into the map runs the
+ * loader, and the others wait for that future (single-flight).
+ *
+ * <p>Loads run on an {@link Executor}. Loads mostly wait on I/O, so an executor that starts a
+ * virtual thread per task ({@code Executors.newVirtualThreadPerTaskExecutor()}, where available)
+ * is a good fit.
+ *
+ * <p>With {@code refreshAfterWriteNanos} set, a value that old is still returned, but the first
+ * {@link #get} that sees it also starts reloading it in the background. Once the reload finishes,
+ * the new value replaces the old one, unless the entry was changed in the meantime.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class LoadingCache<K, V> {
+  /** Duration that turns off refreshing. */
+  static final long NEVER = Long.MAX_VALUE;
+
+  final Loader<K, V> loader;
+  final Executor executor;
+  final long refreshAfterWriteNanos;
+  /** Source of the current time, in nanoseconds. */
+  final LongSupplier ticker;
+  final ConcurrentMap<K, Value<V>> values = new ConcurrentMap<>();
+
+  /**
+   * @param loader loads the values of missing keys
+   * @param executor runs the loads
+   * @param refreshAfterWriteNanos how old a value may get before it is reloaded, or {@link #NEVER}
+   * @param ticker source of the current time, in nanoseconds
+   */
+  LoadingCache(
+      Loader<K, V> loader, Executor executor, long refreshAfterWriteNanos, LongSupplier ticker) {
+    if (refreshAfterWriteNanos <= 0) throw new IllegalArgumentException();
+    this.loader = loader;
+    this.executor = executor;
+    this.refreshAfterWriteNanos = refreshAfterWriteNanos;
+    this.ticker = ticker;
+  }
+
+  LoadingCache(Loader<K, V> loader, Executor executor) {
+    this(loader, executor, NEVER, System::nanoTime);
+  }
+
+  LoadingCache(Loader<K, V> loader) {
+    this(loader, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Returns the number of entries, including those still loading.
+   *
+   * @return the number of entries
+   */
+  public int size() {
+    return values.size();
+  }
+
+  /**
+   * Gets the value for {@code key}, loading it first if it is missing. If another thread is already
+   * loading it, waits for that load instead of starting another.
+   *
+   * @param key the key whose value to find
+   * @return the value for {@code key}, or {@code null} if the loader returned {@code null}
+   * @throws CompletionException if the load failed. The failed entry is removed, so the next call
+   *     loads again.
+   * @throws NullPointerException if {@code key} is {@code null}
+   * @throws java.util.concurrent.RejectedExecutionException if the executor rejected the load. As
+   *     with a failed load, the next call tries again.
+   */
+  public V get(K key) {
+    Value<V> value = values.get(key);
+    if (value == null) {
+      Value<V> created = new Value<>();
+      value = values.putIfAbsent(key, created);
+      if (value == null) {
+        try {
+          executor.execute(() -> load(key, created));
+        } catch (RuntimeException | Error e) {
+          fail(key, created, e);
+          throw e;
+        }
+        return created.future.join();
+      }
+    }
+    refreshIfStale(key, value);
+    return value.future.join();
+  }
+
+  /**
+   * Gets the values for {@code keys} into {@code out}, so that {@code out[i]} is the value of
+   * {@code keys[i]}. The missing keys that no other thread is loading are loaded together, with
+   * one call to {@link Loader#loadAll}.
+   *
+   * @param keys the keys whose values to find
+   * @param out array of at least {@code keys.length} to write the values into
+   * @throws CompletionException if a load failed
+   * @throws IllegalArgumentException if {@code out} is shorter than {@code keys}
+   * @throws java.util.concurrent.RejectedExecutionException if the executor rejected the load
+   */
+  public void getAll(K[] keys, V[] out) {
+    if (out.length < keys.length) throw new IllegalArgumentException();
+    Value<V>[] found = newValues(keys.length);
+    K[] missing = Arrays.copyOf(keys, keys.length);
+    Value<V>[] created = newValues(keys.length);
+    int count = 0;
+    for (int i = 0; i < keys.length; ++i) {
+      Value<V> value = values.get(keys[i]);
+      if (value == null) {
+        Value<V> fresh = new Value<>();
+        value = values.putIfAbsent(keys[i], fresh);
+        if (value == null) {
+          value = fresh;
+          missing[count] = keys[i];
+          created[count++] = fresh;
+        }
+      } else {
+        refreshIfStale(keys[i], value);
+      }
+      found[i] = value;
+    }
+    if (count > 0) {
+      K[] batch = Arrays.copyOf(missing, count);
+      Value<V>[] targets = Arrays.copyOf(created, count);
+      V[] loaded = Arrays.copyOf(out, count); // an array of the caller's value type
+      Arrays.fill(loaded, null);
+      try {
+        executor.execute(() -> loadAll(batch, targets, loaded));
+      } catch (RuntimeException | Error e) {
+        for (int i = 0; i < count; ++i) {
+          fail(batch[i], targets[i], e);
+        }
+        throw e;
+      }
+    }
+    for (int i = 0; i < keys.length; ++i) {
+      out[i] = found[i].future.join();
+    }
+  }
+
+  /**
+   * Inserts an entry with {@code (key, value)} into this cache, replacing any value or load in
+   * progress for {@code key}. Threads already waiting on such a load still get its result.
+   *
+   * @param key the key
+   * @param value the value
+   * @throws NullPointerException if {@code key} or {@code value} is {@code null}
+   */
+  public void insert(K key, V value) {
+    if (value == null) throw new NullPointerException();
+    values.insert(key, new Value<>(value, ticker.getAsLong()));
+  }
+
+  /**
+   * Delete the entry of a key, if it is present. A load in progress for {@code key} still
+   * completes for the threads waiting on it, but its value is not kept.
+   *
+   * @param k key whose entry to delete if present
+   * @return {@code true} if key was found before deletion, else {@code false}
+   * @throws NullPointerException if {@code k} is {@code null}
+   */
+  public boolean delete(K k) {
+    return values.delete(k);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  static <V> Value<V>[] newValues(int length) {
+    return (Value<V>[]) new Value[length];
+  }
+
+  /** Runs the loader for {@code key} and completes {@code value}, which the caller created. */
+  void load(K key, Value<V> value) {
+    V v;
+    try {
+      v = loader.load(key);
+    } catch (Throwable e) {
+      fail(key, value, e);
+      return;
+    }
+    complete(key, value, v);
+  }
+
+  /** Runs the bulk loader for {@code keys} into {@code loaded} and completes {@code targets}. */
+  void loadAll(K[] keys, Value<V>[] targets, V[] loaded) {
+    try {
+      loader.loadAll(keys, loaded);
+    } catch (Throwable e) {
+      for (int i = 0; i < keys.length; ++i) {
+        fail(keys[i], targets[i], e);
+      }
+      return;
+    }
+    for (int i = 0; i < keys.length; ++i) {
+      complete(keys[i], targets[i], loaded[i]);
+    }
+  }
+
+  /** Removes {@code value}, whose load failed with {@code e}, so that the next call loads again. */
+  void fail(K key, Value<V> value, Throwable e) {
+    values.delete(key, value);
+    value.future.completeExceptionally(e);
+  }
+
+  void complete(K key, Value<V> value, V v) {
+    value.loadTime = ticker.getAsLong();
+    if (v == null) {
+      values.delete(key, value); // nothing to cache
+    }
+    value.future.complete(v);
+  }
+
+  /** Starts reloading {@code value} in the background if it is old enough and isn't already. */
+  void refreshIfStale(K key, Value<V> value) {
+    if (refreshAfterWriteNanos == NEVER || !value.future.isDone()) return;
+    if (ticker.getAsLong() - value.loadTime < refreshAfterWriteNanos) return;
+    if (value.future.isCompletedExceptionally() || !value.refreshing.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      executor.execute(
+          () -> {
+            try {
+              V v = loader.load(key);
+              if (v != null) {
+                values.replace(key, value, new Value<>(v, ticker.getAsLong()));
+              }
+            } catch (Throwable e) {
+              // keep serving the old value; a later get tries again
+            } finally {
+              value.refreshing.set(false);
+            }
+          });
+    } catch (RuntimeException e) {
+      // as if the reload had failed: the old value is still good
+      value.refreshing.set(false);
+    } catch (Error e) {
+      value.refreshing.set(false);
+      throw e;
+    }
+  }
+
+  /**
+   * Loads values for a {@link LoadingCache}.
+   *
+   * @param <K> key type
+   * @param <V> value type
+   */
+  @FunctionalInterface
+  public interface Loader<K, V> {
+    /**
+     * @param key the key whose value to load
+     * @return the value for {@code key}, or {@code null} to cache nothing
+     * @throws Exception if the value could not be loaded
+     */
+    V load(K key) throws Exception;
+
+    /**
+     * Loads the values for many keys at once. By default it loads them one at a time; override it
+     * if the source can serve a batch in one round trip.
+     *
+     * @param keys the keys whose values to load
+     * @param out array of {@code keys.length} to write the values into
+     * @throws Exception if the values could not be loaded
+     */
+    default void loadAll(K[] keys, V[] out) throws Exception {
+      for (int i = 0; i < keys.length; ++i) {
+        out[i] = load(keys[i]);
+      }
+    }
+  }
+
+  /** The value of a key, which is still loading while {@link #future} isn't done. */
+  static final class Value<V> {
+    final CompletableFuture<V> future;
+    /** When {@link #future} was completed. */
+    volatile long loadTime;
+    final AtomicBoolean refreshing = new AtomicBoolean();
+
+    Value() {
+      future = new CompletableFuture<>();
+    }
+
+    Value(V value, long loadTime) {
+      future = CompletableFuture.completedFuture(value);
+      this.loadTime = loadTime;
+    }
+  }
+}
@@ -0,0 +1,296 @@
+package com.thomasbreydo.datastructures;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free hash-map with the same operations as {@link Map}, implemented as a split-ordered list
+ * (Shalev and Shavit).
+ *
+ * <p>All entries live in one sorted, lock-free linked list. They are sorted by their hash with the
+ * bits reversed, which puts the entries of every bucket next to each other no matter how many
+ * buckets there are. A bucket is just a pointer to a dummy node at the start of its part of the
+ * list, so growing only means doubling {@code bucketCount}: new buckets are split off lazily by
+ * inserting a dummy node into the middle of their parent bucket, and no entry is ever moved.
+ *
+ * <p>Every operation is a sequence of compare-and-set steps. A delete first clears the entry's
+ * value (which is when the entry stops being in the map), then marks its link and unlinks it; any
+ * thread that finds a marked node helps unlink it.
+ *
+ * <p>Keys and values can't be {@code null}, since {@code null} is what {@link #get} returns for a
+ * missing key.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class LockFreeMap<K, V> {
+  static final int DEFAULT_CAPACITY = 16;
+  static final double DEFAULT_LOAD_FACTOR = 0.75;
+
+  final double loadFactor;
+  final AtomicInteger bucketCount;
+  final LongAdder size = new LongAdder();
+  /**
+   * Dummy nodes of the buckets. Segment {@code k > 0} holds buckets {@code [2^(k - 1), 2^k)} and
+   * segment 0 holds bucket 0, so segments are only ever added, never copied.
+   */
+  final AtomicReferenceArray<AtomicReferenceArray<Node<K, V>>> segments =
+      new AtomicReferenceArray<>(32);
+
+  LockFreeMap(int capacity, double loadFactor) {
+    if (capacity <= 0) throw new IllegalArgumentException();
+    this.loadFactor = loadFactor;
+    bucketCount = new AtomicInteger(Hashing.tableSize(capacity));
+    setBucket(0, new Node<>(dummyKey(0), null, null));
+  }
+
+  LockFreeMap(int capacity) {
+    this(capacity, DEFAULT_LOAD_FACTOR);
+  }
+
+  LockFreeMap() {
+    this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+  }
+
+  int capacity() {
+    return bucketCount.get();
+  }
+
+  static int hash(Object key) {
+    return Hashing.mix(key.hashCode()) & Integer.MAX_VALUE;
+  }
+
+  /** Sort key of an entry: the reversed hash, with the lowest bit set. */
+  static int regularKey(int hash) {
+    return Integer.reverse(hash) | 1;
+  }
+
+  /** Sort key of the dummy node of a bucket: the reversed index, with the lowest bit clear. */
+  static int dummyKey(int bucket) {
+    return Integer.reverse(bucket);
+  }
+
+  static int segment(int bucket) {
+    return 32 - Integer.numberOfLeadingZeros(bucket);
+  }
+
+  static int offset(int bucket) {
+    return bucket == 0 ? 0 : bucket - Integer.highestOneBit(bucket);
+  }
+
+  Node<K, V> getBucket(int bucket) {
+    AtomicReferenceArray<Node<K, V>> segment = segments.get(segment(bucket));
+    return segment == null ? null : segment.get(offset(bucket));
+  }
+
+  void setBucket(int bucket, Node<K, V> dummy) {
+    int k = segment(bucket);
+    AtomicReferenceArray<Node<K, V>> segment = segments.get(k);
+    if (segment == null) {
+      segments.compareAndSet(k, null, new AtomicReferenceArray<>(k == 0 ? 1 : 1 << (k - 1)));
+      segment = segments.get(k);
+    }
+    segment.compareAndSet(offset(bucket), null, dummy);
+  }
+
+  /** @return the dummy node of {@code bucket}, splitting the bucket off its parent if needed */
+  Node<K, V> bucket(int bucket) {
+    Node<K, V> dummy = getBucket(bucket);
+    if (dummy != null) return dummy;
+    Node<K, V> parent = bucket(bucket & ~Integer.highestOneBit(bucket));
+    dummy = new Node<>(dummyKey(bucket), null, null);
+    while (true) {
+      Window<K, V> w = find(parent, dummy.soKey, null);
+      if (w.curr != null && w.curr.soKey == dummy.soKey) {
+        dummy = w.curr; // another thread split this bucket first
+        break;
+      }
+      dummy.next.set(w.curr, false);
+      if (w.pred.next.compareAndSet(w.curr, dummy, false, false)) break;
+    }
+    setBucket(bucket, dummy);
+    return dummy;
+  }
+
+  Node<K, V> bucketOf(int hash) {
+    return bucket(hash & (bucketCount.get() - 1));
+  }
+
+  /**
+   * Finds the first node from {@code start} whose sort key is greater than {@code soKey}, or equal
+   * to it and matching {@code key} (a {@code null} key matches the dummy node). Unlinks the marked
+   * nodes it passes.
+   */
+  Window<K, V> find(Node<K, V> start, int soKey, Object key) {
+    boolean[] marked = {false};
+    retry:
+    while (true) {
+      Node<K, V> pred = start;
+      Node<K, V> curr = pred.next.getReference();
+      while (curr != null) {
+        Node<K, V> succ = curr.next.get(marked);
+        while (marked[0]) {
+          if (!pred.next.compareAndSet(curr, succ, false, false)) continue retry;
+          curr = succ;
+          if (curr == null) return new Window<>(pred, null);
+          succ = curr.next.get(marked);
+        }
+        int c = Integer.compareUnsigned(curr.soKey, soKey);
+        if (c > 0 || (c == 0 && (key == null || key.equals(curr.key)))) {
+          return new Window<>(pred, curr);
+        }
+        pred = curr;
+        curr = succ;
+      }
+      return new Window<>(pred, null);
+    }
+  }
+
+  public int size() {
+    return (int) size.sum();
+  }
+
+  /**
+   * Inserts an entry with {@code (key, value)} into this map. If a value with key {@code key}
+   * already existed, the old value is overwritten.
+   *
+   * @param key the key
+   * @param value the value
+   * @return the old value if {@code key} was present in the map, otherwise {@code null}.
+   * @throws NullPointerException if {@code key} or {@code value} is {@code null}
+   */
+  public V insert(K key, V value) {
+    if (value == null) throw new NullPointerException();
+    int h = hash(key);
+    int soKey = regularKey(h);
+    Node<K, V> start = bucketOf(h);
+    Node<K, V> node = null;
+    while (true) {
+      Window<K, V> w = find(start, soKey, key);
+      Node<K, V> curr = w.curr;
+      if (curr != null && curr.soKey == soKey) {
+        V v = curr.value;
+        if (v == null) {
+          curr.mark(); // being deleted: finish that, then insert a new node
+        } else if (curr.casValue(v, value)) {
+          return v;
+        }
+        continue;
+      }
+      if (node == null) {
+        node = new Node<>(soKey, key, value);
+      }
+      node.next.set(curr, false);
+      if (w.pred.next.compareAndSet(curr, node, false, false)) break;
+    }
+    size.increment();
+    int buckets = bucketCount.get();
+    if (size.sum() > buckets * loadFactor && buckets < Hashing.MAX_CAPACITY) {
+      bucketCount.compareAndSet(buckets, buckets * 2);
+    }
+    return null;
+  }
+
+  Node<K, V> getNode(Object key) {
+    int h = hash(key);
+    int soKey = regularKey(h);
+    for (Node<K, V> node = bucketOf(h).next.getReference();
+        node != null;
+        node = node.next.getReference()) {
+      int c = Integer.compareUnsigned(node.soKey, soKey);
+      if (c > 0) return null;
+      if (c == 0 && key.equals(node.key)) return node;
+    }
+    return null;
+  }
+
+  /**
+   * Gets the value for {@code key}. Returns {@code null} if {@code key} is not found.
+   *
+   * @param key the key whose value to find
+   * @return the value for {@code key} or {@code null}
+   */
+  public V get(K key) {
+    Node<K, V> node = getNode(key);
+    return node == null ? null : node.value;
+  }
+
+  /**
+   * Checks if this map contains an entry whose key is {@code key}.
+   *
+   * @param key the key to check
+   * @return {@code true} if the key is in this map, else {@code false}
+   */
+  public boolean hasKey(K key) {
+    return get(key) != null;
+  }
+
+  /**
+   * Delete the entry of a key, if it is present.
+   *
+   * @param k key whose entry to delete if present
+   * @return {@code true} if key was found before deletion, else {@code false}
+   */
+  public boolean delete(K k) {
+    int h = hash(k);
+    int soKey = regularKey(h);
+    Node<K, V> start = bucketOf(h);
+    while (true) {
+      Node<K, V> curr = find(start, soKey, k).curr;
+      if (curr == null || curr.soKey != soKey) return false;
+      V v = curr.value;
+      if (v == null) {
+        curr.mark();
+        return false;
+      }
+      if (curr.casValue(v, null)) {
+        curr.mark();
+        find(start, soKey, k); // unlinks curr
+        size.decrement();
+        return true;
+      }
+    }
+  }
+
+  static final class Node<K, V> {
+    @SuppressWarnings("rawtypes")
+    static final AtomicReferenceFieldUpdater<Node, Object> VALUE =
+        AtomicReferenceFieldUpdater.newUpdater(Node.class, Object.class, "value");
+
+    final int soKey;
+    final K key;
+    /** {@code null} once the entry is deleted (and always for dummy nodes). */
+    volatile V value;
+    /** Marked once the node is deleted and may be unlinked. */
+    final AtomicMarkableReference<Node<K, V>> next = new AtomicMarkableReference<>(null, false);
+
+    Node(int soKey, K key, V value) {
+      this.soKey = soKey;
+      this.key = key;
+      this.value = value;
+    }
+
+    boolean casValue(V expect, V update) {
+      return VALUE.compareAndSet(this, expect, update);
+    }
+
+    void mark() {
+      while (!next.isMarked()) {
+        next.attemptMark(next.getReference(), true);
+      }
+    }
+  }
+
+  static final class Window<K, V> {
+    final Node<K, V> pred;
+    final Node<K, V> curr;
+
+    Window(Node<K, V> pred, Node<K, V> curr) {
+      this.pred = pred;
+      this.curr = curr;
+    }
+  }
+}
@@ -0,0 +1,166 @@
+package com.thomasbreydo.datastructures;
+
+/**
+ * Hash-map from {@code long} to objects with the same operations as {@link Map}. Keys are stored
+ * unboxed in a flat array next to the values (see {@link OpenAddressingMap}), so no operation
+ * allocates.
+ *
+ * @param <V> value type
+ */
+public class LongObjectMap<V> {
+  static final int DEFAULT_CAPACITY = 16;
+  static final double DEFAULT_LOAD_FACTOR = 0.5;
+  final double loadFactor;
+  int size;
+  int capacity;
+  long[] keys;
+  Object[] values;
+  /** A {@code 0} in {@code keys} marks a free slot, so the entry for key {@code 0} is kept here. */
+  boolean hasZeroKey;
+  V zeroValue;
+
+  LongObjectMap(int capacity, double loadFactor) {
+    checkCapacity(capacity);
+    if (!(loadFactor > 0 && loadFactor < 1)) throw new IllegalArgumentException();
+    this.loadFactor = loadFactor;
+    this.capacity = Hashing.tableSize(capacity);
+    keys = new long[this.capacity];
+    values = new Object[this.capacity];
+  }
+
+  LongObjectMap(int capacity) {
+    this(capacity, DEFAULT_LOAD_FACTOR);
+  }
+
+  LongObjectMap() {
+    this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+  }
+
+  void checkCapacity(int capacity) {
+    if (capacity <= 0) throw new IllegalArgumentException();
+  }
+
+  void expand(int newCapacity) {
+    checkCapacity(newCapacity);
+    long[] oldKeys = keys;
+    Object[] oldValues = values;
+    capacity = Hashing.tableSize(newCapacity);
+    keys = new long[capacity];
+    values = new Object[capacity];
+    for (int i = 0; i < oldKeys.length; ++i) {
+      if (oldKeys[i] != 0) {
+        int j = slot(oldKeys[i]);
+        while (keys[j] != 0) {
+          j = (j + 1) & (capacity - 1);
+        }
+        keys[j] = oldKeys[i];
+        values[j] = oldValues[i];
+      }
+    }
+  }
+
+  int slot(long key) {
+    return Hashing.mix(key) & (capacity - 1);
+  }
+
+  /** @return the slot holding {@code key} ({@code != 0}), or the free slot that ends its probe */
+  int probe(long key) {
+    int i = slot(key);
+    while (keys[i] != 0 && keys[i] != key) {
+      i = (i + 1) & (capacity - 1);
+    }
+    return i;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Inserts an entry with {@code (key, value)} into this map. If a value with key {@code key}
+   * already existed, the old value is overwritten.
+   *
+   * @param key the key
+   * @param value the value
+   * @return the old value if {@code key} was present in the map, otherwise {@code null}.
+   */
+  @SuppressWarnings("unchecked")
+  public V insert(long key, V value) {
+    if (key == 0) {
+      V old = zeroValue;
+      if (!hasZeroKey) {
+        hasZeroKey = true;
+        ++size;
+      }
+      zeroValue = value;
+      return old;
+    }
+    if ((double) (size + 1) / capacity > loadFactor) {
+      expand(capacity * 2);
+    }
+    int i = probe(key);
+    if (keys[i] == 0) {
+      keys[i] = key;
+      values[i] = value;
+      ++size;
+      return null;
+    }
+    V v = (V) values[i];
+    values[i] = value;
+    return v;
+  }
+
+  /**
+   * Gets the value for {@code key}. Returns {@code null} if {@code key} is not found.
+   *
+   * @param key the key whose value to find
+   * @return the value for {@code key} or {@code null}
+   */
+  @SuppressWarnings("unchecked")
+  public V get(long key) {
+    if (key == 0) return zeroValue;
+    return (V) values[probe(key)];
+  }
+
+  /**
+   * Checks if this map contains an entry whose key is {@code key}.
+   *
+   * @param key the key to check
+   * @return {@code true} if the key is in this map, else {@code false}
+   */
+  public boolean hasKey(long key) {
+    if (key == 0) return hasZeroKey;
+    return keys[probe(key)] != 0;
+  }
+
+  /**
+   * Delete the entry of a key, if it is present.
+   *
+   * @param k key whose entry to delete if present
+   * @return {@code true} if key was found before deletion, else {@code false}
+   */
+  public boolean delete(long k) {
+    if (k == 0) {
+      if (!hasZeroKey) return false;
+      hasZeroKey = false;
+      zeroValue = null;
+      --size;
+      return true;
+    }
+    int hole = probe(k);
+    if (keys[hole] == 0) return false;
+    int mask = capacity - 1;
+    for (int i = (hole + 1) & mask; keys[i] != 0; i = (i + 1) & mask) {
+      // see OpenAddressingMap.delete
+      if (((i - slot(keys[i])) & mask) >= ((i - hole) & mask)) {
+        keys[hole] = keys[i];
+        values[hole] = values[i];
+        hole = i;
+      }
+    }
+    keys[hole] = 0;
+    values[hole] = null;
+    --size;
+    return true;
+  }
+}
@@ -0,0 +1,107 @@
+package com.thomasbreydo.datastructures;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Cache that holds at most {@code maxSize} entries and evicts the least recently used one to make
+ * room. The entries are kept in a {@link DoublyLinkedList}, most recently used first, and a {@link
+ * Map} maps each key straight to its node of the list. So a hit moves the node to the front
+ * without searching the list, and {@link #get}, {@link #insert} and eviction all take O(1) time. A
+ * hit allocates nothing.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class LruCache<K, V> {
+  final int maxSize;
+  /** Called with the key and value of every entry evicted to make room. */
+  final BiConsumer<? super K, ? super V> evictionListener;
+  final Map<K, DoublyLinkedList.Node<Map.Entry<K, V>>> nodes = new Map<>();
+  /** Most recently used entry first. */
+  final DoublyLinkedList<Map.Entry<K, V>> order = new DoublyLinkedList<>();
+
+  /**
+   * @param maxSize maximum number of entries ({@code maxSize > 0})
+   * @param evictionListener called with the key and value of every evicted entry
+   */
+  LruCache(int maxSize, BiConsumer<? super K, ? super V> evictionListener) {
+    if (maxSize <= 0) throw new IllegalArgumentException();
+    this.maxSize = maxSize;
+    this.evictionListener = evictionListener;
+  }
+
+  LruCache(int maxSize) {
+    this(maxSize, (k, v) -> {});
+  }
+
+  public int size() {
+    return nodes.size();
+  }
+
+  /**
+   * Gets the value for {@code key} and marks it as the most recently used. Returns {@code null} if
+   * {@code key} is not found.
+   *
+   * @param key the key whose value to find
+   * @return the value for {@code key} or {@code null}
+   */
+  public V get(K key) {
+    DoublyLinkedList.Node<Map.Entry<K, V>> node = nodes.get(key);
+    if (node == null) return null;
+    order.moveToFront(node);
+    return node.val.value;
+  }
+
+  /**
+   * Checks if this cache contains an entry whose key is {@code key}, without marking it as used.
+   *
+   * @param key the key to check
+   * @return {@code true} if the key is in this cache, else {@code false}
+   */
+  public boolean hasKey(K key) {
+    return nodes.hasKey(key);
+  }
+
+  /**
+   * Inserts an entry with {@code (key, value)} into this cache as the most recently used one. If a
+   * value with key {@code key} already existed, the old value is overwritten. If the cache was
+   * full, the least recently used entry is evicted and passed to the eviction listener.
+   *
+   * @param key the key
+   * @param value the value
+   * @return the old value if {@code key} was present in the cache, otherwise {@code null}.
+   */
+  public V insert(K key, V value) {
+    DoublyLinkedList.Node<Map.Entry<K, V>> node = nodes.get(key);
+    if (node != null) {
+      order.moveToFront(node);
+      V v = node.val.value;
+      node.val.setValue(value);
+      return v;
+    }
+    node = new DoublyLinkedList.Node<>(new Map.Entry<>(key, value), null, null);
+    order.linkFirst(node);
+    nodes.insert(key, node);
+    if (nodes.size() > maxSize) {
+      Map.Entry<K, V> eldest = order.tail.val;
+      order.toss(order.tail);
+      nodes.delete(eldest.key);
+      evictionListener.accept(eldest.key, eldest.value);
+    }
+    return null;
+  }
+
+  /**
+   * Delete the entry of a key, if it is present. The eviction listener is not called.
+   *
+   * @param k key whose entry to delete if present
+   * @return {@code true} if key was found before deletion, else {@code false}
+   */
+  public boolean delete(K k) {
+    DoublyLinkedList.Node<Map.Entry<K, V>> node = nodes.get(k);
+    if (node == null) return false;
+    order.toss(node);
+    nodes.delete(k);
+    return true;
+  }
+}
@@ -1,7 +1,16 @@
 package com.thomasbreydo.datastructures;
 
-import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongBinaryOperator;
+import java.util.function.ToLongBiFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @param <K> key type
@@ -10,18 +19,89 @@ import java.util.Objects;
 public class Map<K, V> {
   static final int DEFAULT_CAPACITY = 16;
   static final double DEFAULT_LOAD_FACTOR = 0.75;
+  /** Number of old buckets an incremental resize moves per operation. */
+  static final int REHASH_STEP = 4;
+  /** A list bucket that reaches this many entries is turned into a {@link TreeBucket}. */
+  static final int TREEIFY_THRESHOLD = 8;
+  /** A tree bucket that shrinks to this many entries is turned back into a list. */
+  static final int UNTREEIFY_THRESHOLD = 6;
+  /** Number of keys {@link #getAll} and {@link #insertAll} hash and look up together. */
+  static final int BATCH_SIZE = 16;
   final double loadFactor;
+  /**
+   * The map halves its capacity once {@code size / capacity} drops below this. It is at most half
+   * of {@link #loadFactor}, so that a map that just shrank is not about to grow again.
+   */
+  final double shrinkLoadFactor;
+  /** The map doesn't shrink by itself below the capacity it was created with. */
+  final int minCapacity;
+  /** If {@code true}, {@link #expand} moves entries a few buckets at a time instead of at once. */
+  final boolean incremental;
+  /** Hashes and compares the keys. */
+  final HashingStrategy<? super K> strategy;
   int size;
   int capacity;
-  ArrayList<DoublyLinkedList<Entry<K, V>>> buckets;
+  /**
+   * Every bucket is either a {@link DoublyLinkedList} or, once it holds {@link
+   * #TREEIFY_THRESHOLD} entries, a {@link TreeBucket}. A bucket is only created once an entry is
+   * added to it, so most slots may be {@code null}.
+   */
+  Iterable<Entry<K, V>>[] buckets;
+  /** Buckets still being drained by an incremental resize, or {@code null} if there is none. */
+  Iterable<Entry<K, V>>[] oldBuckets;
+  /** Buckets of {@code oldBuckets} before this index have already been moved (and are null). */
+  int rehashIndex;
+  /** Statistics being recorded, or {@code null} if {@link #enableStats} is off. */
+  MapStats stats;
 
-  Map(int capacity, double loadFactor) {
+  /**
+   * @param capacity initial number of buckets, rounded up to a power of two, below which the map
+   *     doesn't shrink by itself
+   * @param loadFactor maximum ratio of {@code size} to {@code capacity}
+   * @param shrinkLoadFactor ratio of {@code size} to {@code capacity} below which the map shrinks,
+   *     at most {@code loadFactor / 2}, or {@code 0} to never shrink
+   * @param incremental if {@code true}, resizes move entries a few buckets at a time
+   * @param strategy hashes and compares the keys
+   */
+  Map(
+      int capacity,
+      double loadFactor,
+      double shrinkLoadFactor,
+      boolean incremental,
+      HashingStrategy<? super K> strategy) {
     checkCapacity(capacity);
-    this.capacity = capacity;
+    if (shrinkLoadFactor < 0 || shrinkLoadFactor > loadFactor / 2) {
+      throw new IllegalArgumentException();
+    }
+    this.capacity = Hashing.tableSize(capacity);
+    minCapacity = this.capacity;
     this.loadFactor = loadFactor;
+    this.shrinkLoadFactor = shrinkLoadFactor;
+    this.incremental = incremental;
+    this.strategy = strategy;
     recreateEmptyBuckets();
   }
 
+  Map(int capacity, double loadFactor, double shrinkLoadFactor, boolean incremental) {
+    this(capacity, loadFactor, shrinkLoadFactor, incremental, HashingStrategy.natural());
+  }
+
+  Map(int capacity, double loadFactor, HashingStrategy<? super K> strategy) {
+    this(capacity, loadFactor, loadFactor / 4, false, strategy);
+  }
+
+  Map(HashingStrategy<? super K> strategy) {
+    this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR, strategy);
+  }
+
+  Map(int capacity, double loadFactor, boolean incremental) {
+    this(capacity, loadFactor, loadFactor / 4, incremental);
+  }
+
+  Map(int capacity, double loadFactor) {
+    this(capacity, loadFactor, false);
+  }
+
   Map(int capacity) {
     this(capacity, DEFAULT_LOAD_FACTOR);
   }
@@ -35,30 +115,182 @@ public class Map<K, V> {
    */
   void recreateEmptyBuckets() {
     size = 0;
-    buckets = new ArrayList<>(capacity);
-    for (int i = 0; i < capacity; ++i) {
-      buckets.add(new DoublyLinkedList<>());
-    }
+    buckets = emptyBuckets(capacity);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  static <K, V> Iterable<Entry<K, V>>[] emptyBuckets(int capacity) {
+    return (Iterable<Entry<K, V>>[]) new Iterable[capacity];
   }
 
   void checkCapacity(int capacity) {
     if (capacity <= 0) throw new IllegalArgumentException();
   }
 
+  /**
+   * Starts recording statistics about lookups and resizes, if that isn't on already. Until then,
+   * the only cost to lookups and resizes is a {@code null} check.
+   *
+   * @return the statistics being recorded
+   */
+  public MapStats enableStats() {
+    if (stats == null) {
+      stats = new MapStats(this);
+    }
+    return stats;
+  }
+
+  /** Stops recording statistics. */
+  public void disableStats() {
+    stats = null;
+  }
+
+  /**
+   * Resizes this map to {@code newCapacity} buckets, rounded up to a power of two. An incremental
+   * map only swaps in the new buckets here; its entries are moved over by {@link #rehashStep}
+   * during later operations.
+   */
   void expand(int newCapacity) {
     checkCapacity(newCapacity);
-    ArrayList<DoublyLinkedList<Entry<K, V>>> oldBuckets = buckets; // todo check if clone needed
+    newCapacity = Hashing.tableSize(newCapacity);
+    Object event = FlightEvents.beginExpand();
+    int oldCapacity = capacity;
+    if (stats == null) {
+      resize(newCapacity);
+    } else {
+      long start = System.nanoTime();
+      resize(newCapacity);
+      stats.recordExpand(System.nanoTime() - start);
+    }
+    FlightEvents.endExpand(event, oldCapacity, newCapacity, size);
+  }
+
+  void resize(int newCapacity) {
+    finishRehash();
+    Iterable<Entry<K, V>>[] oldBuckets = buckets;
     capacity = newCapacity;
-    recreateEmptyBuckets();
-    for (DoublyLinkedList<Entry<K, V>> bucket : oldBuckets) {
+    if (incremental) {
+      this.oldBuckets = oldBuckets;
+      rehashIndex = 0;
+      buckets = emptyBuckets(capacity);
+      return;
+    }
+    buckets = emptyBuckets(capacity);
+    for (Iterable<Entry<K, V>> bucket : oldBuckets) {
+      if (bucket != null) {
+        moveBucket(bucket);
+      }
+    }
+  }
+
+  /**
+   * Moves the entries of {@code bucket}, an old bucket, into {@link #buckets}. Keys are never in
+   * both, so this uses the hashes cached in the entries and doesn't look for duplicates. The nodes
+   * of a list are relinked into their new buckets rather than copied.
+   */
+  void moveBucket(Iterable<Entry<K, V>> bucket) {
+    if (bucket instanceof TreeBucket) {
       for (Entry<K, V> entry : bucket) {
-        insert(entry.key, entry.value);
+        addToBucket(entry.hash, entry);
+      }
+      return;
+    }
+    DoublyLinkedList.Node<Entry<K, V>> node = ((DoublyLinkedList<Entry<K, V>>) bucket).head;
+    while (node != null) {
+      DoublyLinkedList.Node<Entry<K, V>> next = node.next;
+      int i = index(node.val.hash, buckets.length);
+      Iterable<Entry<K, V>> target = buckets[i];
+      if (target instanceof TreeBucket) {
+        ((TreeBucket<K, V>) target).add(node.val.hash, node.val);
+      } else {
+        DoublyLinkedList<Entry<K, V>> list = (DoublyLinkedList<Entry<K, V>>) target;
+        if (list == null) {
+          buckets[i] = list = new DoublyLinkedList<>();
+        }
+        list.linkFirst(node);
+        if (list.size() >= TREEIFY_THRESHOLD) {
+          buckets[i] = new TreeBucket<>(list, strategy);
+        }
       }
+      node = next;
+    }
+  }
+
+  /**
+   * Shrinks the capacity to the smallest one that holds the current entries without exceeding the
+   * load factor. Until more entries are inserted, iterating over the buckets and resizing then take
+   * time proportional to {@code size} rather than to the largest size the map ever had.
+   */
+  public void trimToSize() {
+    int newCapacity = Hashing.tableSize(Math.max(1, (int) Math.ceil(size / loadFactor)));
+    if (newCapacity < capacity) {
+      expand(newCapacity);
+    }
+    finishRehash();
+  }
+
+  /** Moves the next {@link #REHASH_STEP} old buckets, if an incremental resize is in progress. */
+  void rehashStep() {
+    if (oldBuckets == null) return;
+    for (int i = 0; i < REHASH_STEP && rehashIndex < oldBuckets.length; ++i) {
+      if (oldBuckets[rehashIndex] != null) {
+        moveBucket(oldBuckets[rehashIndex]);
+        oldBuckets[rehashIndex] = null;
+      }
+      ++rehashIndex;
+    }
+    if (rehashIndex == oldBuckets.length) {
+      oldBuckets = null;
+    }
+  }
+
+  void finishRehash() {
+    while (oldBuckets != null) {
+      rehashStep();
+    }
+  }
+
+  /** @return the hash of {@code key}, with its bits mixed so that its low bits can be used */
+  int hash(K key) {
+    return Hashing.mix(strategy.hash(key));
+  }
+
+  /** @param capacity a power of two */
+  static int index(int hash, int capacity) {
+    return hash & (capacity - 1);
+  }
+
+  /** @return the bucket of a key with hash {@code h}, or {@code null} if it hasn't been created */
+  Iterable<Entry<K, V>> bucket(int h) {
+    return buckets[index(h, buckets.length)];
+  }
+
+  /**
+   * Adds {@code entry}, whose key has hash {@code h}, to its bucket. Creates the bucket if needed
+   * and turns it into a tree if it gets too long.
+   */
+  void addToBucket(int h, Entry<K, V> entry) {
+    int i = index(h, buckets.length);
+    Iterable<Entry<K, V>> bucket = buckets[i];
+    if (bucket instanceof TreeBucket) {
+      ((TreeBucket<K, V>) bucket).add(h, entry);
+      return;
+    }
+    DoublyLinkedList<Entry<K, V>> list = (DoublyLinkedList<Entry<K, V>>) bucket;
+    if (list == null) {
+      buckets[i] = list = new DoublyLinkedList<>();
+    }
+    list.add(entry);
+    if (list.size() >= TREEIFY_THRESHOLD) {
+      buckets[i] = new TreeBucket<>(list, strategy);
     }
   }
 
-  DoublyLinkedList<Entry<K, V>> bucket(K key) {
-    return buckets.get(Objects.hash(key) % buckets.size());
+  /** @return the old bucket of a key with hash {@code h}, or {@code null} if it was moved */
+  Iterable<Entry<K, V>> oldBucket(int h) {
+    if (oldBuckets == null) return null;
+    int i = index(h, oldBuckets.length);
+    return i < rehashIndex ? null : oldBuckets[i];
   }
 
   public int size() {
@@ -66,10 +298,88 @@ public class Map<K, V> {
   }
 
   public Entry<K, V> getEntry(K key) {
-    DoublyLinkedList<Entry<K, V>> list = bucket(key);
-    for (Entry<K, V> entry : list) {
-      if (entry.key == key) {
-        return entry;
+    return getEntry(hash(key), key);
+  }
+
+  /** @param h hash of {@code key} */
+  Entry<K, V> getEntry(int h, K key) {
+    Iterable<Entry<K, V>> bucket = bucket(h);
+    boolean scan = FlightEvents.bucketScanEnabled();
+    if (stats == null && !scan) {
+      Entry<K, V> entry = find(bucket, h, key);
+      return entry == null ? find(oldBucket(h), h, key) : entry;
+    }
+    int[] probes = new int[1];
+    Entry<K, V> entry = find(bucket, h, key, probes);
+    if (entry == null) {
+      entry = find(oldBucket(h), h, key, probes);
+    }
+    recordLookup(probes[0], entry != null, bucket instanceof TreeBucket, scan);
+    return entry;
+  }
+
+  /**
+   * Like {@link #getEntry(int, Object)}, but first tries {@code first}, the entry that {@link
+   * #loadFirsts} found at the head of the bucket of {@code key}.
+   *
+   * @param scan whether {@link FlightEvents#bucketScanEnabled}
+   */
+  Entry<K, V> getEntry(int h, K key, Entry<K, V> first, boolean scan) {
+    if (first == null || !strategy.equals(first.key, key)) return getEntry(h, key);
+    if (stats != null || scan) {
+      recordLookup(1, true, false, scan);
+    }
+    return first;
+  }
+
+  /** Records a lookup that compared {@code probes} entries in the stats and the JFR event. */
+  void recordLookup(int probes, boolean hit, boolean tree, boolean scan) {
+    if (stats != null) {
+      stats.recordLookup(probes, hit);
+    }
+    if (scan) {
+      FlightEvents.bucketScan(probes, tree, buckets.length);
+    }
+  }
+
+  /** @return the number of entries in {@code bucket}, which may be {@code null} */
+  static int length(Iterable<?> bucket) {
+    if (bucket == null) return 0;
+    if (bucket instanceof TreeBucket) return ((TreeBucket<?, ?>) bucket).size;
+    return ((DoublyLinkedList<?>) bucket).size();
+  }
+
+  Entry<K, V> find(Iterable<Entry<K, V>> bucket, int h, K key) {
+    if (bucket == null) return null;
+    if (bucket instanceof TreeBucket) return ((TreeBucket<K, V>) bucket).find(h, key);
+    // walks the nodes instead of using an iterator, so a lookup allocates nothing. Comparing the
+    // cached hashes first skips most calls to equals.
+    DoublyLinkedList.Node<Entry<K, V>> node = ((DoublyLinkedList<Entry<K, V>>) bucket).head;
+    for (; node != null; node = node.next) {
+      if (node.val.hash == h && strategy.equals(node.val.key, key)) {
+        return node.val;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Like {@link #find(Iterable, int, Object)}, but also adds the number of entries compared with
+   * {@code key} to {@code probes[0]}. For a tree that is taken as its height if it were perfectly
+   * balanced.
+   */
+  Entry<K, V> find(Iterable<Entry<K, V>> bucket, int h, K key, int[] probes) {
+    if (bucket == null) return null;
+    if (bucket instanceof TreeBucket) {
+      TreeBucket<K, V> tree = (TreeBucket<K, V>) bucket;
+      probes[0] += 32 - Integer.numberOfLeadingZeros(tree.size);
+      return tree.find(h, key);
+    }
+    DoublyLinkedList.Node<Entry<K, V>> node = ((DoublyLinkedList<Entry<K, V>>) bucket).head;
+    for (; node != null; node = node.next) {
+      ++probes[0];
+      if (node.val.hash == h && strategy.equals(node.val.key, key)) {
+        return node.val;
       }
     }
     return null;
@@ -84,13 +394,33 @@ public class Map<K, V> {
    * @return the old value if {@code key} was present in the map, otherwise {@code null}.
    */
   public V insert(K key, V value) {
+    beforeInsert();
+    return insert(hash(key), key, value);
+  }
+
+  /** Grows the map if one more entry would exceed the load factor, and moves old buckets. */
+  void beforeInsert() {
     if ((double) (size + 1) / capacity > loadFactor) {
       expand(capacity * 2);
     }
-    Entry<K, V> entry = getEntry(key);
+    rehashStep();
+  }
+
+  /** Adds a new entry {@code (key, value)}, whose key has hash {@code h} and isn't present. */
+  void add(int h, K key, V value) {
+    addToBucket(h, new Entry<>(h, key, value));
+    ++size;
+  }
+
+  /**
+   * Inserts {@code (key, value)} without checking the load factor or moving old buckets.
+   *
+   * @param h hash of {@code key}
+   */
+  V insert(int h, K key, V value) {
+    Entry<K, V> entry = getEntry(h, key);
     if (entry == null) {
-      bucket(key).add(new Entry<>(key, value));
-      ++size;
+      add(h, key, value);
       return null;
     }
     V v = entry.value;
@@ -98,6 +428,216 @@ public class Map<K, V> {
     return v;
   }
 
+  /**
+   * Inserts an entry with {@code (key, value)} into this map, unless {@code key} is already
+   * present. The key is hashed and its bucket searched only once.
+   *
+   * @param key the key
+   * @param value the value
+   * @return the present value if {@code key} was present in the map (which is then unchanged),
+   *     otherwise {@code null}.
+   */
+  public V putIfAbsent(K key, V value) {
+    beforeInsert();
+    int h = hash(key);
+    Entry<K, V> entry = getEntry(h, key);
+    if (entry != null) return entry.value;
+    add(h, key, value);
+    return null;
+  }
+
+  /**
+   * Gets the value for {@code key}, or if {@code key} isn't present, computes a value with {@code
+   * function} and inserts it unless it is {@code null}. The key is hashed and its bucket searched
+   * only once. {@code function} must not change this map.
+   *
+   * @param key the key
+   * @param function computes the value for {@code key}
+   * @return the present value, or else the computed value
+   */
+  public V computeIfAbsent(K key, Function<? super K, ? extends V> function) {
+    beforeInsert();
+    int h = hash(key);
+    Entry<K, V> entry = getEntry(h, key);
+    if (entry != null) return entry.value;
+    V v = function.apply(key);
+    if (v != null) {
+      add(h, key, v);
+    }
+    return v;
+  }
+
+  /**
+   * If {@code key} is present, replaces its value with {@code function} applied to the key and the
+   * old value, or deletes the entry if that is {@code null}. The key is hashed and its bucket
+   * searched only once, unless the entry is deleted. {@code function} must not change this map.
+   *
+   * @param key the key
+   * @param function computes the new value from the key and the old value
+   * @return the new value, or {@code null} if there is none
+   */
+  public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> function) {
+    rehashStep();
+    int h = hash(key);
+    Entry<K, V> entry = getEntry(h, key);
+    if (entry == null) return null;
+    return update(h, entry, function.apply(key, entry.value));
+  }
+
+  /**
+   * Replaces the value of {@code key} with {@code function} applied to the key and the old value
+   * (or {@code null} if {@code key} isn't present). A {@code null} result deletes the entry, or
+   * inserts nothing. The key is hashed and its bucket searched only once, unless the entry is
+   * deleted. {@code function} must not change this map.
+   *
+   * @param key the key
+   * @param function computes the new value from the key and the old value
+   * @return the new value, or {@code null} if there is none
+   */
+  public V compute(K key, BiFunction<? super K, ? super V, ? extends V> function) {
+    beforeInsert();
+    int h = hash(key);
+    Entry<K, V> entry = getEntry(h, key);
+    if (entry != null) return update(h, entry, function.apply(key, entry.value));
+    V v = function.apply(key, null);
+    if (v != null) {
+      add(h, key, v);
+    }
+    return v;
+  }
+
+  /**
+   * Inserts {@code (key, value)} if {@code key} isn't present, or else replaces its value with
+   * {@code function} applied to the old value and {@code value}, deleting the entry if that is
+   * {@code null}. Counting with {@code merge(key, 1, Integer::sum)} hashes the key and searches its
+   * bucket once, where {@link #get} followed by {@link #insert} does both twice. {@code function}
+   * must not change this map.
+   *
+   * @param key the key
+   * @param value the value to insert or to combine with the old value
+   * @param function combines the old value and {@code value}
+   * @return the new value, or {@code null} if there is none
+   * @throws NullPointerException if {@code value} is {@code null}
+   */
+  public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> function) {
+    if (value == null) throw new NullPointerException();
+    beforeInsert();
+    int h = hash(key);
+    Entry<K, V> entry = getEntry(h, key);
+    if (entry != null) return update(h, entry, function.apply(entry.value, value));
+    add(h, key, value);
+    return value;
+  }
+
+  /** Sets the value of {@code entry}, whose key has hash {@code h}, or deletes it if null. */
+  V update(int h, Entry<K, V> entry, V value) {
+    if (value == null) {
+      delete(h, entry.key);
+    } else {
+      entry.setValue(value);
+    }
+    return value;
+  }
+
+  /**
+   * Inserts {@code (keys[i], values[i])} for every {@code i}, like calling {@link #insert} for each
+   * pair in order. The capacity is grown at most once, up front, to fit the whole batch, and keys
+   * are looked up {@link #BATCH_SIZE} at a time like in {@link #getAll}.
+   *
+   * @param keys the keys
+   * @param values the values, at least as many as {@code keys}
+   * @throws IllegalArgumentException if {@code values} is shorter than {@code keys}
+   */
+  public void insertAll(K[] keys, V[] values) {
+    if (values.length < keys.length) throw new IllegalArgumentException();
+    // assumes no key is present yet, which can only make the capacity larger than needed
+    int newCapacity = capacity;
+    while (newCapacity < Hashing.MAX_CAPACITY
+        && (double) (size + keys.length) / newCapacity > loadFactor) {
+      newCapacity *= 2;
+    }
+    if (newCapacity != capacity) {
+      expand(newCapacity);
+    }
+    boolean scan = FlightEvents.bucketScanEnabled();
+    int[] hashes = new int[BATCH_SIZE];
+    Entry<K, V>[] firsts = newEntries(BATCH_SIZE);
+    for (int start = 0; start < keys.length; start += BATCH_SIZE) {
+      rehashStep();
+      int n = Math.min(BATCH_SIZE, keys.length - start);
+      hashes(keys, start, n, hashes);
+      loadFirsts(hashes, n, firsts);
+      for (int j = 0; j < n; ++j) {
+        // the entries of firsts stay in the map, since inserting neither deletes nor copies entries
+        Entry<K, V> entry = getEntry(hashes[j], keys[start + j], firsts[j], scan);
+        if (entry == null) {
+          add(hashes[j], keys[start + j], values[start + j]);
+        } else {
+          entry.setValue(values[start + j]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Sets {@code out[i]} to the value for {@code keys[i]} (or {@code null}), like calling {@link
+   * #get} for each key. Keys are handled {@link #BATCH_SIZE} at a time: all of their hashes are
+   * computed, then the first entry of each of their buckets is loaded, and only then is any key
+   * compared. The loads for different keys don't depend on each other, so the processor can wait
+   * for their cache misses at the same time instead of one by one. A key that isn't the first
+   * entry of its bucket is then searched for as usual.
+   *
+   * @param keys the keys whose values to find
+   * @param out where to put the values, at least as long as {@code keys}
+   * @throws IllegalArgumentException if {@code out} is shorter than {@code keys}
+   */
+  public void getAll(K[] keys, V[] out) {
+    if (out.length < keys.length) throw new IllegalArgumentException();
+    boolean scan = FlightEvents.bucketScanEnabled();
+    int[] hashes = new int[BATCH_SIZE];
+    Entry<K, V>[] firsts = newEntries(BATCH_SIZE);
+    for (int start = 0; start < keys.length; start += BATCH_SIZE) {
+      rehashStep();
+      int n = Math.min(BATCH_SIZE, keys.length - start);
+      hashes(keys, start, n, hashes);
+      loadFirsts(hashes, n, firsts);
+      for (int j = 0; j < n; ++j) {
+        Entry<K, V> entry = getEntry(hashes[j], keys[start + j], firsts[j], scan);
+        out[start + j] = entry == null ? null : entry.value;
+      }
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  static <K, V> Entry<K, V>[] newEntries(int length) {
+    return (Entry<K, V>[]) new Entry[length];
+  }
+
+  void hashes(K[] keys, int start, int n, int[] hashes) {
+    for (int j = 0; j < n; ++j) {
+      hashes[j] = hash(keys[start + j]);
+    }
+  }
+
+  /**
+   * Sets {@code firsts[j]} to the first entry of the list bucket of {@code hashes[j]} if its hash
+   * is {@code hashes[j]}, or else to {@code null}. This reads the bucket, its list, the list's head
+   * node and the head's entry, the chain of loads a lookup starts with.
+   */
+  void loadFirsts(int[] hashes, int n, Entry<K, V>[] firsts) {
+    for (int j = 0; j < n; ++j) {
+      Iterable<Entry<K, V>> bucket = bucket(hashes[j]);
+      Entry<K, V> first = null;
+      if (bucket instanceof DoublyLinkedList) {
+        DoublyLinkedList.Node<Entry<K, V>> head = ((DoublyLinkedList<Entry<K, V>>) bucket).head;
+        if (head != null && head.val.hash == hashes[j]) {
+          first = head.val;
+        }
+      }
+      firsts[j] = first;
+    }
+  }
+
   /**
    * Gets the value for {@code key}. Returns {@code null} if {@code key} is not found.
    *
@@ -105,6 +645,7 @@ public class Map<K, V> {
    * @return the value for {@code key} or {@code null}
    */
   public V get(K key) {
+    rehashStep();
     Entry<K, V> entry = getEntry(key);
     if (entry == null) {
       return null;
@@ -119,6 +660,7 @@ public class Map<K, V> {
    * @return {@code true} if the key is in this map, else {@code false}
    */
   public boolean hasKey(K key) {
+    rehashStep();
     return getEntry(key) != null;
   }
 
@@ -129,21 +671,210 @@ public class Map<K, V> {
    * @return {@code true} if key was found before deletion, else {@code false}
    */
   public boolean delete(K k) {
-    if (!bucket(k).removeIf(entry -> entry.key == k)) return false;
+    rehashStep();
+    return delete(hash(k), k);
+  }
+
+  /**
+   * Deletes the entry of {@code k} without moving old buckets.
+   *
+   * @param h hash of {@code k}
+   */
+  boolean delete(int h, K k) {
+    if (!remove(buckets, index(h, buckets.length), h, k)) {
+      if (oldBuckets == null) return false;
+      int i = index(h, oldBuckets.length);
+      if (i < rehashIndex || !remove(oldBuckets, i, h, k)) return false;
+    }
     --size;
+    if ((double) size / capacity < shrinkLoadFactor && capacity / 2 >= minCapacity) {
+      expand(capacity / 2);
+    }
     return true;
   }
 
+  /**
+   * Removes the entry of {@code key} from {@code buckets[i]}. Drops the bucket if it empties and
+   * turns it back into a list if it is a tree that got short enough.
+   */
+  boolean remove(Iterable<Entry<K, V>>[] buckets, int i, int h, K key) {
+    Iterable<Entry<K, V>> bucket = buckets[i];
+    if (bucket == null) return false;
+    if (bucket instanceof TreeBucket) {
+      TreeBucket<K, V> tree = (TreeBucket<K, V>) bucket;
+      if (tree.remove(h, key) == null) return false;
+      if (tree.size <= UNTREEIFY_THRESHOLD) {
+        DoublyLinkedList<Entry<K, V>> list = new DoublyLinkedList<>();
+        for (Entry<K, V> entry : tree) {
+          list.add(entry);
+        }
+        buckets[i] = list;
+      }
+      return true;
+    }
+    DoublyLinkedList<Entry<K, V>> list = (DoublyLinkedList<Entry<K, V>>) bucket;
+    if (!list.removeIf(entry -> entry.hash == h && strategy.equals(entry.key, key))) return false;
+    if (list.isEmpty()) {
+      buckets[i] = null;
+    }
+    return true;
+  }
+
+  /** @return a view of the keys of this map */
+  public View<K> keys() {
+    return new View<>(entry -> entry.key, Spliterator.DISTINCT);
+  }
+
+  /** @return a view of the values of this map */
+  public View<V> values() {
+    return new View<>(entry -> entry.value, 0);
+  }
+
+  /** @return a view of the entries of this map */
+  public View<Entry<K, V>> entries() {
+    return new View<>(entry -> entry, Spliterator.DISTINCT | Spliterator.NONNULL);
+  }
+
+  /**
+   * @param parallelismThreshold the smallest size at which the stream is parallel
+   * @return a stream of the entries of this map
+   */
+  Stream<Entry<K, V>> entryStream(long parallelismThreshold) {
+    return StreamSupport.stream(entries().spliterator(), size >= parallelismThreshold);
+  }
+
+  /**
+   * Calls {@code action} with every key and value. If this map has at least {@code
+   * parallelismThreshold} entries, the buckets are split between the threads of the common {@link
+   * java.util.concurrent.ForkJoinPool}, so {@code action} must be thread-safe. Like every bulk
+   * operation, it must not use this map: even {@link #get} may move buckets of an incremental
+   * resize.
+   *
+   * @param parallelismThreshold the smallest size at which the work is done in parallel, e.g.
+   *     {@code Long.MAX_VALUE} to run on the calling thread only
+   * @param action the action to call with every key and value
+   */
+  public void forEach(long parallelismThreshold, BiConsumer<? super K, ? super V> action) {
+    entryStream(parallelismThreshold).forEach(entry -> action.accept(entry.key, entry.value));
+  }
+
+  /**
+   * Transforms every key and value with {@code transformer} and combines the non-{@code null}
+   * results with {@code reducer}, in parallel like {@link #forEach(long, BiConsumer)}.
+   *
+   * @param parallelismThreshold the smallest size at which the work is done in parallel
+   * @param transformer maps a key and value to a result, or to {@code null} to skip them
+   * @param reducer combines two results; it must be associative
+   * @param <U> result type
+   * @return the combined result, or {@code null} if there were none
+   */
+  public <U> U reduce(
+      long parallelismThreshold,
+      BiFunction<? super K, ? super V, ? extends U> transformer,
+      BiFunction<? super U, ? super U, ? extends U> reducer) {
+    return entryStream(parallelismThreshold)
+        .<U>map(entry -> transformer.apply(entry.key, entry.value))
+        .filter(Objects::nonNull)
+        .reduce(reducer::apply)
+        .orElse(null);
+  }
+
+  /**
+   * Transforms every key and value to a {@code long} and combines them with {@code reducer}, in
+   * parallel like {@link #forEach(long, BiConsumer)}. Nothing is boxed.
+   *
+   * @param parallelismThreshold the smallest size at which the work is done in parallel
+   * @param transformer maps a key and value to a {@code long}
+   * @param basis the identity of {@code reducer}, which is the result for an empty map
+   * @param reducer combines two results; it must be associative
+   * @return the combined result
+   */
+  public long reduceToLong(
+      long parallelismThreshold,
+      ToLongBiFunction<? super K, ? super V> transformer,
+      long basis,
+      LongBinaryOperator reducer) {
+    return entryStream(parallelismThreshold)
+        .mapToLong(entry -> transformer.applyAsLong(entry.key, entry.value))
+        .reduce(basis, reducer);
+  }
+
+  /**
+   * Returns a non-{@code null} result of {@code searchFunction} for some key and value, in parallel
+   * like {@link #forEach(long, BiConsumer)}. The search stops as soon as any result is found.
+   *
+   * @param parallelismThreshold the smallest size at which the work is done in parallel
+   * @param searchFunction maps a key and value to a result, or to {@code null} if they don't match
+   * @param <U> result type
+   * @return a non-{@code null} result, or {@code null} if there is none
+   */
+  public <U> U search(
+      long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> searchFunction) {
+    return entryStream(parallelismThreshold)
+        .<U>map(entry -> searchFunction.apply(entry.key, entry.value))
+        .filter(Objects::nonNull)
+        .findAny()
+        .orElse(null);
+  }
+
+  /**
+   * Keys, values or entries of a {@link Map}, read from the map when they are iterated. The map
+   * must not be changed while a view of it is being iterated.
+   *
+   * @param <T> element type
+   */
+  public final class View<T> implements Iterable<T> {
+    final Function<? super Entry<K, V>, ? extends T> mapper;
+    final int characteristics;
+
+    View(Function<? super Entry<K, V>, ? extends T> mapper, int characteristics) {
+      this.mapper = mapper;
+      this.characteristics = characteristics;
+    }
+
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+      return Spliterators.iterator(spliterator());
+    }
+
+    /** @return a spliterator that splits the buckets, including old buckets still being drained */
+    @Override
+    public Spliterator<T> spliterator() {
+      Iterable<Entry<K, V>>[] old = oldBuckets == null ? emptyBuckets(0) : oldBuckets;
+      return new BucketSpliterator<>(
+          buckets, old, 0, buckets.length + old.length, size, mapper, characteristics);
+    }
+
+    public Stream<T> stream() {
+      return StreamSupport.stream(spliterator(), false);
+    }
+
+    public Stream<T> parallelStream() {
+      return StreamSupport.stream(spliterator(), true);
+    }
+  }
+
   /** Stores a pair of {@code (key, value)}. */
   public static class Entry<K, V> {
     K key;
     V value;
+    /** Hash of {@code key} in the map that holds this entry, so it never has to be recomputed. */
+    int hash;
 
     Entry(K k, V v) {
       key = k;
       value = v;
     }
 
+    Entry(int hash, K k, V v) {
+      this(k, v);
+      this.hash = hash;
+    }
+
     public K getKey() {
       return key;
     }
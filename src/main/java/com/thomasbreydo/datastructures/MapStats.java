@@ -0,0 +1,199 @@
+package com.thomasbreydo.datastructures;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Statistics that a {@link Map} records while {@link Map#enableStats} is on: how many lookups hit
+ * and missed, how many entries they compared their key with (the probe length), and how often and
+ * how long the map was resized. The bucket length distribution is counted from the buckets when it
+ * is asked for.
+ *
+ * <p>The counters are as thread-safe as the map itself, which is to say not at all. A reader on
+ * another thread, such as JMX, may see slightly stale values.
+ */
+public final class MapStats implements MapStatsMXBean {
+  final Map<?, ?> map;
+  long hits;
+  long misses;
+  long probes;
+  int maxProbeLength;
+  long expandCount;
+  long expandNanos;
+
+  MapStats(Map<?, ?> map) {
+    this.map = map;
+  }
+
+  void recordLookup(int probeLength, boolean hit) {
+    if (hit) {
+      ++hits;
+    } else {
+      ++misses;
+    }
+    probes += probeLength;
+    maxProbeLength = Math.max(maxProbeLength, probeLength);
+  }
+
+  void recordExpand(long nanos) {
+    ++expandCount;
+    expandNanos += nanos;
+  }
+
+  @Override
+  public long getHits() {
+    return hits;
+  }
+
+  @Override
+  public long getMisses() {
+    return misses;
+  }
+
+  @Override
+  public double getAverageProbeLength() {
+    long lookups = hits + misses;
+    return lookups == 0 ? 0 : (double) probes / lookups;
+  }
+
+  @Override
+  public int getMaxProbeLength() {
+    return maxProbeLength;
+  }
+
+  @Override
+  public long getExpandCount() {
+    return expandCount;
+  }
+
+  @Override
+  public long getExpandNanos() {
+    return expandNanos;
+  }
+
+  @Override
+  public long[] getBucketLengths() {
+    long[] counts = new long[1];
+    counts = countLengths(map.buckets, 0, counts);
+    if (map.oldBuckets != null) {
+      counts = countLengths(map.oldBuckets, map.rehashIndex, counts);
+    }
+    return counts;
+  }
+
+  static long[] countLengths(Iterable<?>[] buckets, int from, long[] counts) {
+    for (int i = from; i < buckets.length; ++i) {
+      int length = Map.length(buckets[i]);
+      if (length >= counts.length) {
+        counts = Arrays.copyOf(counts, length + 1);
+      }
+      ++counts[length];
+    }
+    return counts;
+  }
+
+  /** Sets every counter back to zero. */
+  public void reset() {
+    hits = misses = probes = expandCount = expandNanos = 0;
+    maxProbeLength = 0;
+  }
+
+  /** @return a copy of the current statistics, which later operations won't change */
+  public Snapshot snapshot() {
+    return new Snapshot(this);
+  }
+
+  /**
+   * Publishes these statistics in the platform MBean server.
+   *
+   * @param name the {@code name} key of the MBean's {@link ObjectName}
+   * @return the name it was registered under, to pass to {@link #unregister}
+   * @throws JMException if the name is invalid or taken
+   */
+  public ObjectName register(String name) throws JMException {
+    ObjectName objectName =
+        new ObjectName("com.thomasbreydo.datastructures:type=Map,name=" + ObjectName.quote(name));
+    ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+    return objectName;
+  }
+
+  /**
+   * Removes statistics published by {@link #register} from the platform MBean server.
+   *
+   * @param objectName the name returned by {@link #register}
+   * @throws JMException if nothing is registered under {@code objectName}
+   */
+  public static void unregister(ObjectName objectName) throws JMException {
+    ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+  }
+
+  /** Statistics of a {@link Map} at one point in time. */
+  public static final class Snapshot {
+    final long hits;
+    final long misses;
+    final double averageProbeLength;
+    final int maxProbeLength;
+    final long expandCount;
+    final long expandNanos;
+    final long[] bucketLengths;
+
+    Snapshot(MapStats stats) {
+      hits = stats.getHits();
+      misses = stats.getMisses();
+      averageProbeLength = stats.getAverageProbeLength();
+      maxProbeLength = stats.getMaxProbeLength();
+      expandCount = stats.getExpandCount();
+      expandNanos = stats.getExpandNanos();
+      bucketLengths = stats.getBucketLengths();
+    }
+
+    public long getHits() {
+      return hits;
+    }
+
+    public long getMisses() {
+      return misses;
+    }
+
+    public double getAverageProbeLength() {
+      return averageProbeLength;
+    }
+
+    public int getMaxProbeLength() {
+      return maxProbeLength;
+    }
+
+    public long getExpandCount() {
+      return expandCount;
+    }
+
+    public long getExpandNanos() {
+      return expandNanos;
+    }
+
+    public long[] getBucketLengths() {
+      return bucketLengths.clone();
+    }
+
+    @Override
+    public String toString() {
+      return "MapStats.Snapshot{hits="
+          + hits
+          + ", misses="
+          + misses
+          + ", averageProbeLength="
+          + averageProbeLength
+          + ", maxProbeLength="
+          + maxProbeLength
+          + ", expandCount="
+          + expandCount
+          + ", expandNanos="
+          + expandNanos
+          + ", bucketLengths="
+          + Arrays.toString(bucketLengths)
+          + '}';
+    }
+  }
+}
@@ -0,0 +1,25 @@
+package com.thomasbreydo.datastructures;
+
+/** Management interface through which a {@link MapStats} is published over JMX. */
+public interface MapStatsMXBean {
+  /** @return the number of lookups that found their key */
+  long getHits();
+
+  /** @return the number of lookups that didn't find their key */
+  long getMisses();
+
+  /** @return the average number of entries a lookup compared its key with */
+  double getAverageProbeLength();
+
+  /** @return the most entries a single lookup compared its key with */
+  int getMaxProbeLength();
+
+  /** @return the number of times the map was resized */
+  long getExpandCount();
+
+  /** @return the total time spent resizing, in nanoseconds */
+  long getExpandNanos();
+
+  /** @return how many buckets hold {@code i} entries, for every {@code i} */
+  long[] getBucketLengths();
+}
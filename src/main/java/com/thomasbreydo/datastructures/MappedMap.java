@@ -0,0 +1,207 @@
+package com.thomasbreydo.datastructures;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link OffHeapMap} whose table lives in a memory-mapped file instead of anonymous direct memory.
+ * Opening an existing file just maps it again, so a restarted program can use the map right away;
+ * the operating system reads pages of the file in as they are touched.
+ *
+ * <p>The file starts with a {@link #HEADER_BYTES}-byte header (codec widths, capacity, size and
+ * where the table starts), and somewhere after it the slots exactly as {@link OffHeapMap} lays
+ * them out. Growing the map builds the new table in a region of the file that doesn't overlap the
+ * old one and writes it to disk before the header is switched over to it, so a crash during a
+ * resize leaves the old table in use. Other changes reach the file when the operating system writes
+ * the pages back, or at the latest on {@link #flush} or {@link #close}.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class MappedMap<K, V> extends OffHeapMap<K, V> {
+  static final long MAGIC = 0x4a44534d4d415031L; // "JDSMMAP1"
+  static final int VERSION = 2;
+  static final int HEADER_BYTES = 64;
+  static final int VERSION_OFFSET = 8;
+  static final int KEY_WIDTH_OFFSET = 12;
+  static final int VALUE_WIDTH_OFFSET = 16;
+  static final int PAGE_SHIFT_OFFSET = 20;
+  static final int CAPACITY_OFFSET = 24;
+  static final int SIZE_OFFSET = 28;
+  /** Position in the file of the first slot. */
+  static final int TABLE_OFFSET = 32;
+
+  final FileChannel channel;
+  final MappedByteBuffer header;
+  long tableOffset = HEADER_BYTES;
+
+  /**
+   * Opens the map stored in {@code path}, or creates it if the file doesn't exist or is empty.
+   *
+   * @param capacity initial capacity, ignored if the file already holds a map
+   * @throws IOException if the file can't be mapped or holds a map with different codec widths
+   */
+  MappedMap(Path path, Codec<K> keyCodec, Codec<V> valueCodec, int capacity, double loadFactor)
+      throws IOException {
+    super(keyCodec, valueCodec, loadFactor, MAX_PAGE_BYTES);
+    checkCapacity(capacity);
+    channel =
+        FileChannel.open(
+            path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+    try {
+      boolean exists = channel.size() > 0;
+      header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+      if (exists) {
+        readHeader();
+        pages = mapPages(this.capacity, tableOffset);
+      } else {
+        this.capacity = Hashing.tableSize(capacity);
+        pages = newPages(this.capacity, tableOffset);
+        writeHeader();
+      }
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  MappedMap(Path path, Codec<K> keyCodec, Codec<V> valueCodec, int capacity) throws IOException {
+    this(path, keyCodec, valueCodec, capacity, DEFAULT_LOAD_FACTOR);
+  }
+
+  MappedMap(Path path, Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+    this(path, keyCodec, valueCodec, DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+  }
+
+  void readHeader() throws IOException {
+    if (header.getLong(0) != MAGIC || header.getInt(VERSION_OFFSET) != VERSION) {
+      throw new IOException("not a map file");
+    }
+    if (header.getInt(KEY_WIDTH_OFFSET) != keyCodec.width()
+        || header.getInt(VALUE_WIDTH_OFFSET) != valueCodec.width()
+        || header.getInt(PAGE_SHIFT_OFFSET) != pageShift) {
+      throw new IOException("map file was written with different codecs");
+    }
+    capacity = header.getInt(CAPACITY_OFFSET);
+    size = header.getInt(SIZE_OFFSET);
+    tableOffset = header.getLong(TABLE_OFFSET);
+  }
+
+  void writeHeader() {
+    header.putLong(0, MAGIC);
+    header.putInt(VERSION_OFFSET, VERSION);
+    header.putInt(KEY_WIDTH_OFFSET, keyCodec.width());
+    header.putInt(VALUE_WIDTH_OFFSET, valueCodec.width());
+    header.putInt(PAGE_SHIFT_OFFSET, pageShift);
+    header.putInt(CAPACITY_OFFSET, capacity);
+    header.putInt(SIZE_OFFSET, size);
+    header.putLong(TABLE_OFFSET, tableOffset);
+  }
+
+  /** @return the number of bytes taken by a table of {@code capacity} slots */
+  long tableBytes(int capacity) {
+    return (long) capacity * slotBytes;
+  }
+
+  /**
+   * Maps the pages of a table of {@code capacity} slots that starts at {@code position} in the
+   * file, extending the file if needed.
+   */
+  ByteBuffer[] mapPages(int capacity, long position) throws IOException {
+    int perPage = slotsPerPage(capacity);
+    long pageBytes = (long) perPage * slotBytes;
+    ByteBuffer[] pages = new ByteBuffer[capacity / perPage];
+    for (int i = 0; i < pages.length; ++i) {
+      pages[i] = channel.map(FileChannel.MapMode.READ_WRITE, position + i * pageBytes, pageBytes);
+    }
+    return pages;
+  }
+
+  /**
+   * Maps the pages of a table of {@code capacity} slots at {@code position} and marks every slot
+   * as free.
+   */
+  ByteBuffer[] newPages(int capacity, long position) {
+    try {
+      ByteBuffer[] pages = mapPages(capacity, position);
+      for (ByteBuffer page : pages) {
+        for (int i = 0; i < page.capacity(); i += slotBytes) {
+          page.putInt(i, 0);
+        }
+      }
+      return pages;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Builds the larger table next to the old one, writes it to disk and only then points the header
+   * at it. The header is a single sector, so it is written all at once, and a file reopened after a
+   * crash finds either the old table or the complete new one. The new table goes right after the
+   * old one. The map only grows, doubling each time, so the regions of all earlier tables add up to
+   * less than the current one and the file stays under twice the size of its table.
+   */
+  @Override
+  void expand(int newCapacity) {
+    checkCapacity(newCapacity);
+    ByteBuffer[] oldPages = pages;
+    int oldCapacity = capacity;
+    long oldOffset = tableOffset;
+    capacity = Hashing.tableSize(newCapacity);
+    tableOffset = oldOffset + tableBytes(oldCapacity);
+    try {
+      pages = newPages(capacity, tableOffset);
+      moveAll(oldPages, oldCapacity);
+      for (ByteBuffer page : pages) {
+        ((MappedByteBuffer) page).force();
+      }
+    } catch (RuntimeException e) {
+      // the header still points at the old table, so keep using it
+      pages = oldPages;
+      capacity = oldCapacity;
+      tableOffset = oldOffset;
+      throw e;
+    }
+    header.putInt(CAPACITY_OFFSET, capacity);
+    header.putLong(TABLE_OFFSET, tableOffset);
+    header.force();
+  }
+
+  @Override
+  void sizeChanged() {
+    header.putInt(SIZE_OFFSET, size);
+  }
+
+  /** Writes all changes to the file. */
+  public void flush() {
+    checkOpen();
+    for (ByteBuffer page : pages) {
+      ((MappedByteBuffer) page).force();
+    }
+    header.force();
+  }
+
+  /**
+   * Writes all changes to the file and closes it. Any later operation throws {@link
+   * IllegalStateException}.
+   *
+   * @throws UncheckedIOException if the file can't be closed
+   */
+  @Override
+  public void close() {
+    if (pages == null) return;
+    flush();
+    super.close();
+    try {
+      channel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
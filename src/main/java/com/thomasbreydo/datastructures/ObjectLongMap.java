@@ -0,0 +1,159 @@
+package com.thomasbreydo.datastructures;
+
+/**
+ * Hash-map from objects to {@code long} with the same operations as {@link Map}. Values are stored
+ * unboxed in a flat array next to the keys (see {@link OpenAddressingMap}), so no operation
+ * allocates. A missing value is reported as {@code noEntryValue} instead of {@code null}.
+ *
+ * @param <K> key type
+ */
+public class ObjectLongMap<K> {
+  static final int DEFAULT_CAPACITY = 16;
+  static final double DEFAULT_LOAD_FACTOR = 0.5;
+  final double loadFactor;
+  /** Returned by {@link #get} and {@link #insert} when there is no entry for the key. */
+  final long noEntryValue;
+  int size;
+  int capacity;
+  Object[] keys;
+  long[] values;
+
+  /**
+   * @param capacity initial number of slots, rounded up to a power of two
+   * @param loadFactor maximum ratio of {@code size} to {@code capacity} ({@code 0 < loadFactor <
+   *     1}, since probing needs at least one free slot)
+   * @param noEntryValue value reported for keys that are not in this map
+   */
+  ObjectLongMap(int capacity, double loadFactor, long noEntryValue) {
+    checkCapacity(capacity);
+    if (!(loadFactor > 0 && loadFactor < 1)) throw new IllegalArgumentException();
+    this.loadFactor = loadFactor;
+    this.noEntryValue = noEntryValue;
+    this.capacity = Hashing.tableSize(capacity);
+    keys = new Object[this.capacity];
+    values = new long[this.capacity];
+  }
+
+  ObjectLongMap(int capacity, double loadFactor) {
+    this(capacity, loadFactor, 0);
+  }
+
+  ObjectLongMap(int capacity) {
+    this(capacity, DEFAULT_LOAD_FACTOR);
+  }
+
+  ObjectLongMap() {
+    this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+  }
+
+  void checkCapacity(int capacity) {
+    if (capacity <= 0) throw new IllegalArgumentException();
+  }
+
+  void expand(int newCapacity) {
+    checkCapacity(newCapacity);
+    Object[] oldKeys = keys;
+    long[] oldValues = values;
+    capacity = Hashing.tableSize(newCapacity);
+    keys = new Object[capacity];
+    values = new long[capacity];
+    for (int i = 0; i < oldKeys.length; ++i) {
+      if (oldKeys[i] != null) {
+        // keys are unique, so just find the first free slot
+        int j = slot(oldKeys[i]);
+        while (keys[j] != null) {
+          j = (j + 1) & (capacity - 1);
+        }
+        keys[j] = oldKeys[i];
+        values[j] = oldValues[i];
+      }
+    }
+  }
+
+  /** @return the slot where probing for {@code k} (already masked) starts */
+  int slot(Object k) {
+    return Hashing.mix(k.hashCode()) & (capacity - 1);
+  }
+
+  /** @return the slot holding {@code k} (already masked), or the free slot that ends its probe */
+  int probe(Object k) {
+    int i = slot(k);
+    while (keys[i] != null && keys[i] != k && !keys[i].equals(k)) {
+      i = (i + 1) & (capacity - 1);
+    }
+    return i;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Inserts an entry with {@code (key, value)} into this map. If a value with key {@code key}
+   * already existed, the old value is overwritten.
+   *
+   * @param key the key
+   * @param value the value
+   * @return the old value if {@code key} was present in the map, otherwise {@code noEntryValue}
+   */
+  public long insert(K key, long value) {
+    if ((double) (size + 1) / capacity > loadFactor) {
+      expand(capacity * 2);
+    }
+    Object k = OpenAddressingMap.maskNull(key);
+    int i = probe(k);
+    if (keys[i] == null) {
+      keys[i] = k;
+      values[i] = value;
+      ++size;
+      return noEntryValue;
+    }
+    long v = values[i];
+    values[i] = value;
+    return v;
+  }
+
+  /**
+   * Gets the value for {@code key}. Returns {@code noEntryValue} if {@code key} is not found.
+   *
+   * @param key the key whose value to find
+   * @return the value for {@code key} or {@code noEntryValue}
+   */
+  public long get(K key) {
+    int i = probe(OpenAddressingMap.maskNull(key));
+    return keys[i] == null ? noEntryValue : values[i];
+  }
+
+  /**
+   * Checks if this map contains an entry whose key is {@code key}.
+   *
+   * @param key the key to check
+   * @return {@code true} if the key is in this map, else {@code false}
+   */
+  public boolean hasKey(K key) {
+    return keys[probe(OpenAddressingMap.maskNull(key))] != null;
+  }
+
+  /**
+   * Delete the entry of a key, if it is present.
+   *
+   * @param k key whose entry to delete if present
+   * @return {@code true} if key was found before deletion, else {@code false}
+   */
+  public boolean delete(K k) {
+    int hole = probe(OpenAddressingMap.maskNull(k));
+    if (keys[hole] == null) return false;
+    int mask = capacity - 1;
+    for (int i = (hole + 1) & mask; keys[i] != null; i = (i + 1) & mask) {
+      // see OpenAddressingMap.delete
+      if (((i - slot(keys[i])) & mask) >= ((i - hole) & mask)) {
+        keys[hole] = keys[i];
+        values[hole] = values[i];
+        hole = i;
+      }
+    }
+    keys[hole] = null;
+    --size;
+    return true;
+  }
+}
@@ -0,0 +1,379 @@
+package com.thomasbreydo.datastructures;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Hash-map with the same operations as {@link Map} whose entries are stored outside the Java heap,
+ * in direct {@link ByteBuffer}s. Keys and values are converted to a fixed number of bytes by a
+ * {@link Codec}, so the whole table is a few large buffers and the garbage collector has nothing to
+ * trace no matter how many entries there are.
+ *
+ * <p>The table uses linear probing (see {@link OpenAddressingMap}). A slot is the key's hash
+ * (which is {@code 0} if the slot is free), the encoded key and the encoded value. Keys are
+ * compared by their bytes and hashed by their bytes, so a key type's {@code equals} and {@code
+ * hashCode} are never used. Tables bigger than {@link #MAX_PAGE_BYTES} are split over several
+ * buffers.
+ *
+ * <p>Call {@link #close} once the map is no longer needed; the map can't be used afterwards.
+ * Direct buffers have no portable way to be freed explicitly, so their memory is returned when the
+ * (few) buffer objects are collected.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class OffHeapMap<K, V> implements AutoCloseable {
+  static final int DEFAULT_CAPACITY = 16;
+  static final double DEFAULT_LOAD_FACTOR = 0.5;
+  static final int MAX_PAGE_BYTES = 1 << 30;
+  /** Bytes at the start of each slot, holding the key's hash with its high bit set (or 0). */
+  static final int TAG_BYTES = 4;
+
+  final Codec<K> keyCodec;
+  final Codec<V> valueCodec;
+  final double loadFactor;
+  final int slotBytes;
+  /** Each page holds {@code 2^pageShift} slots, except if the whole table is smaller. */
+  final int pageShift;
+  /** Holds the encoded key of the current operation. */
+  final ByteBuffer scratch;
+  /** Holds the encoded value of the current insert, so that a bad value leaves the table as is. */
+  final ByteBuffer valueScratch;
+  int size;
+  int capacity;
+  /** {@code null} once this map is closed. */
+  ByteBuffer[] pages;
+
+  /**
+   * Creates a map without allocating its table, which is left to the caller.
+   *
+   * @param maxPageBytes largest size of a single buffer
+   */
+  OffHeapMap(Codec<K> keyCodec, Codec<V> valueCodec, double loadFactor, int maxPageBytes) {
+    if (keyCodec.width() <= 0 || valueCodec.width() < 0) throw new IllegalArgumentException();
+    if (!(loadFactor > 0 && loadFactor < 1)) throw new IllegalArgumentException();
+    this.keyCodec = keyCodec;
+    this.valueCodec = valueCodec;
+    this.loadFactor = loadFactor;
+    slotBytes = TAG_BYTES + keyCodec.width() + valueCodec.width();
+    if (slotBytes > maxPageBytes) throw new IllegalArgumentException();
+    pageShift = 31 - Integer.numberOfLeadingZeros(maxPageBytes / slotBytes);
+    scratch = ByteBuffer.allocate(keyCodec.width());
+    valueScratch = ByteBuffer.allocate(valueCodec.width());
+  }
+
+  OffHeapMap(
+      Codec<K> keyCodec, Codec<V> valueCodec, int capacity, double loadFactor, int maxPageBytes) {
+    this(keyCodec, valueCodec, loadFactor, maxPageBytes);
+    checkCapacity(capacity);
+    this.capacity = Hashing.tableSize(capacity);
+    pages = newPages(this.capacity);
+  }
+
+  OffHeapMap(Codec<K> keyCodec, Codec<V> valueCodec, int capacity, double loadFactor) {
+    this(keyCodec, valueCodec, capacity, loadFactor, MAX_PAGE_BYTES);
+  }
+
+  OffHeapMap(Codec<K> keyCodec, Codec<V> valueCodec, int capacity) {
+    this(keyCodec, valueCodec, capacity, DEFAULT_LOAD_FACTOR);
+  }
+
+  OffHeapMap(Codec<K> keyCodec, Codec<V> valueCodec) {
+    this(keyCodec, valueCodec, DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+  }
+
+  void checkCapacity(int capacity) {
+    if (capacity <= 0) throw new IllegalArgumentException();
+  }
+
+  void checkOpen() {
+    if (pages == null) throw new IllegalStateException("map is closed");
+  }
+
+  /** @return the number of slots per page in a table with {@code capacity} slots */
+  int slotsPerPage(int capacity) {
+    return Math.min(capacity, 1 << pageShift);
+  }
+
+  /** Allocates zeroed (so all free) pages for a table of {@code capacity} slots. */
+  ByteBuffer[] newPages(int capacity) {
+    int perPage = slotsPerPage(capacity);
+    ByteBuffer[] pages = new ByteBuffer[capacity / perPage];
+    for (int i = 0; i < pages.length; ++i) {
+      pages[i] = ByteBuffer.allocateDirect(perPage * slotBytes);
+    }
+    return pages;
+  }
+
+  ByteBuffer page(ByteBuffer[] pages, int slot) {
+    return pages[slot >>> pageShift];
+  }
+
+  int offset(int slot) {
+    return (slot & ((1 << pageShift) - 1)) * slotBytes;
+  }
+
+  void expand(int newCapacity) {
+    checkCapacity(newCapacity);
+    ByteBuffer[] oldPages = pages;
+    int oldCapacity = capacity;
+    capacity = Hashing.tableSize(newCapacity);
+    pages = newPages(capacity);
+    moveAll(oldPages, oldCapacity);
+  }
+
+  /** Copies the used slots of another table into this one, placing them by their stored hash. */
+  void moveAll(ByteBuffer[] from, int fromCapacity) {
+    int mask = capacity - 1;
+    for (int s = 0; s < fromCapacity; ++s) {
+      ByteBuffer src = page(from, s);
+      int tag = src.getInt(offset(s));
+      if (tag == 0) continue;
+      int i = tag & mask;
+      while (page(pages, i).getInt(offset(i)) != 0) {
+        i = (i + 1) & mask;
+      }
+      copy(src, offset(s), page(pages, i), offset(i), slotBytes);
+    }
+  }
+
+  /** Called whenever {@code size} changes. */
+  void sizeChanged() {}
+
+  /**
+   * Encodes {@code key} into {@code scratch}.
+   *
+   * @return the tag of {@code key}: its hash with the high bit set, so that it is never {@code 0}
+   */
+  int encodeKey(K key) {
+    keyCodec.write(scratch, 0, key);
+    return Hashing.hash(scratch, 0, keyCodec.width(), 0) | 0x80000000;
+  }
+
+  /** @return the slot holding the key in {@code scratch}, or the free slot that ends its probe */
+  int probe(int tag) {
+    int mask = capacity - 1;
+    for (int i = tag & mask; ; i = (i + 1) & mask) {
+      ByteBuffer page = page(pages, i);
+      int t = page.getInt(offset(i));
+      if (t == 0 || (t == tag && equal(page, offset(i) + TAG_BYTES, scratch, 0, scratch.limit()))) {
+        return i;
+      }
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Inserts an entry with {@code (key, value)} into this map. If a value with key {@code key}
+   * already existed, the old value is overwritten.
+   *
+   * @param key the key
+   * @param value the value
+   * @return the old value if {@code key} was present in the map, otherwise {@code null}.
+   */
+  public V insert(K key, V value) {
+    checkOpen();
+    valueCodec.write(valueScratch, 0, value);
+    if ((double) (size + 1) / capacity > loadFactor) {
+      expand(capacity * 2);
+    }
+    int tag = encodeKey(key);
+    int i = probe(tag);
+    ByteBuffer page = page(pages, i);
+    int valueOffset = offset(i) + TAG_BYTES + keyCodec.width();
+    if (page.getInt(offset(i)) == 0) {
+      copy(valueScratch, 0, page, valueOffset, valueCodec.width());
+      copy(scratch, 0, page, offset(i) + TAG_BYTES, keyCodec.width());
+      // the tag goes last: until it is set, the slot is still free
+      page.putInt(offset(i), tag);
+      ++size;
+      sizeChanged();
+      return null;
+    }
+    V v = valueCodec.read(page, valueOffset);
+    copy(valueScratch, 0, page, valueOffset, valueCodec.width());
+    return v;
+  }
+
+  /**
+   * Gets the value for {@code key}. Returns {@code null} if {@code key} is not found.
+   *
+   * @param key the key whose value to find
+   * @return the value for {@code key} or {@code null}
+   */
+  public V get(K key) {
+    checkOpen();
+    int i = probe(encodeKey(key));
+    ByteBuffer page = page(pages, i);
+    if (page.getInt(offset(i)) == 0) return null;
+    return valueCodec.read(page, offset(i) + TAG_BYTES + keyCodec.width());
+  }
+
+  /**
+   * Checks if this map contains an entry whose key is {@code key}.
+   *
+   * @param key the key to check
+   * @return {@code true} if the key is in this map, else {@code false}
+   */
+  public boolean hasKey(K key) {
+    checkOpen();
+    int i = probe(encodeKey(key));
+    return page(pages, i).getInt(offset(i)) != 0;
+  }
+
+  /**
+   * Delete the entry of a key, if it is present.
+   *
+   * @param k key whose entry to delete if present
+   * @return {@code true} if key was found before deletion, else {@code false}
+   */
+  public boolean delete(K k) {
+    checkOpen();
+    int hole = probe(encodeKey(k));
+    if (page(pages, hole).getInt(offset(hole)) == 0) return false;
+    int mask = capacity - 1;
+    for (int i = (hole + 1) & mask; ; i = (i + 1) & mask) {
+      ByteBuffer page = page(pages, i);
+      int tag = page.getInt(offset(i));
+      if (tag == 0) break;
+      // see OpenAddressingMap.delete
+      if (((i - (tag & mask)) & mask) >= ((i - hole) & mask)) {
+        copy(page, offset(i), page(pages, hole), offset(hole), slotBytes);
+        hole = i;
+      }
+    }
+    page(pages, hole).putInt(offset(hole), 0);
+    --size;
+    sizeChanged();
+    return true;
+  }
+
+  /** Releases the table. Any later operation throws {@link IllegalStateException}. */
+  @Override
+  public void close() {
+    pages = null;
+  }
+
+  static void copy(ByteBuffer src, int srcOffset, ByteBuffer dst, int dstOffset, int length) {
+    int i = 0;
+    for (; i + 8 <= length; i += 8) {
+      dst.putLong(dstOffset + i, src.getLong(srcOffset + i));
+    }
+    for (; i < length; ++i) {
+      dst.put(dstOffset + i, src.get(srcOffset + i));
+    }
+  }
+
+  static boolean equal(ByteBuffer a, int aOffset, ByteBuffer b, int bOffset, int length) {
+    int i = 0;
+    for (; i + 8 <= length; i += 8) {
+      if (a.getLong(aOffset + i) != b.getLong(bOffset + i)) return false;
+    }
+    for (; i < length; ++i) {
+      if (a.get(aOffset + i) != b.get(bOffset + i)) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Converts values of type {@code T} to and from exactly {@link #width} bytes. Implementations
+   * must only use the absolute {@code get}/{@code put} methods of the buffer.
+   *
+   * @param <T> type of the values
+   */
+  public interface Codec<T> {
+    Codec<Integer> INT =
+        new Codec<Integer>() {
+          @Override
+          public int width() {
+            return Integer.BYTES;
+          }
+
+          @Override
+          public void write(ByteBuffer buf, int offset, Integer value) {
+            buf.putInt(offset, value);
+          }
+
+          @Override
+          public Integer read(ByteBuffer buf, int offset) {
+            return buf.getInt(offset);
+          }
+        };
+
+    Codec<Long> LONG =
+        new Codec<Long>() {
+          @Override
+          public int width() {
+            return Long.BYTES;
+          }
+
+          @Override
+          public void write(ByteBuffer buf, int offset, Long value) {
+            buf.putLong(offset, value);
+          }
+
+          @Override
+          public Long read(ByteBuffer buf, int offset) {
+            return buf.getLong(offset);
+          }
+        };
+
+    Codec<Double> DOUBLE =
+        new Codec<Double>() {
+          @Override
+          public int width() {
+            return Double.BYTES;
+          }
+
+          @Override
+          public void write(ByteBuffer buf, int offset, Double value) {
+            buf.putDouble(offset, value);
+          }
+
+          @Override
+          public Double read(ByteBuffer buf, int offset) {
+            return buf.getDouble(offset);
+          }
+        };
+
+    /**
+     * @param length length of every array written with the codec
+     * @return a codec for byte arrays of exactly {@code length} bytes
+     */
+    static Codec<byte[]> bytes(int length) {
+      if (length < 0) throw new IllegalArgumentException();
+      return new Codec<byte[]>() {
+        @Override
+        public int width() {
+          return length;
+        }
+
+        @Override
+        public void write(ByteBuffer buf, int offset, byte[] value) {
+          if (value.length != length) throw new IllegalArgumentException();
+          for (int i = 0; i < length; ++i) {
+            buf.put(offset + i, value[i]);
+          }
+        }
+
+        @Override
+        public byte[] read(ByteBuffer buf, int offset) {
+          byte[] value = new byte[length];
+          for (int i = 0; i < length; ++i) {
+            value[i] = buf.get(offset + i);
+          }
+          return value;
+        }
+      };
+    }
+
+    /** @return the number of bytes of every encoded value */
+    int width();
+
+    void write(ByteBuffer buf, int offset, T value);
+
+    T read(ByteBuffer buf, int offset);
+  }
+}
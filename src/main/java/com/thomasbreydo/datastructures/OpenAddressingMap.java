@@ -0,0 +1,166 @@
+package com.thomasbreydo.datastructures;
+
+/**
+ * Hash-map with the same operations as {@link Map}, but stored as two flat arrays ({@code keys}
+ * and {@code values}) instead of a list of buckets. Collisions are resolved by linear probing, so
+ * a lookup reads consecutive slots of {@code keys} instead of following a bucket, a node and an
+ * entry.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class OpenAddressingMap<K, V> {
+  static final int DEFAULT_CAPACITY = 16;
+  static final double DEFAULT_LOAD_FACTOR = 0.5;
+  /** Stands in for the {@code null} key, since a {@code null} in {@code keys} marks a free slot. */
+  static final Object NULL_KEY = new Object();
+
+  final double loadFactor;
+  int size;
+  int capacity;
+  Object[] keys;
+  Object[] values;
+
+  /**
+   * @param capacity initial number of slots, rounded up to a power of two
+   * @param loadFactor maximum ratio of {@code size} to {@code capacity} ({@code 0 < loadFactor <
+   *     1}, since probing needs at least one free slot)
+   */
+  OpenAddressingMap(int capacity, double loadFactor) {
+    checkCapacity(capacity);
+    if (!(loadFactor > 0 && loadFactor < 1)) throw new IllegalArgumentException();
+    this.loadFactor = loadFactor;
+    this.capacity = Hashing.tableSize(capacity);
+    keys = new Object[this.capacity];
+    values = new Object[this.capacity];
+  }
+
+  OpenAddressingMap(int capacity) {
+    this(capacity, DEFAULT_LOAD_FACTOR);
+  }
+
+  OpenAddressingMap() {
+    this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+  }
+
+  void checkCapacity(int capacity) {
+    if (capacity <= 0) throw new IllegalArgumentException();
+  }
+
+  void expand(int newCapacity) {
+    checkCapacity(newCapacity);
+    Object[] oldKeys = keys;
+    Object[] oldValues = values;
+    capacity = Hashing.tableSize(newCapacity);
+    keys = new Object[capacity];
+    values = new Object[capacity];
+    for (int i = 0; i < oldKeys.length; ++i) {
+      if (oldKeys[i] != null) {
+        // keys are unique, so just find the first free slot
+        int j = slot(oldKeys[i]);
+        while (keys[j] != null) {
+          j = (j + 1) & (capacity - 1);
+        }
+        keys[j] = oldKeys[i];
+        values[j] = oldValues[i];
+      }
+    }
+  }
+
+  static Object maskNull(Object key) {
+    return key == null ? NULL_KEY : key;
+  }
+
+  /** @return the slot where probing for {@code k} (already masked) starts */
+  int slot(Object k) {
+    return Hashing.mix(k.hashCode()) & (capacity - 1);
+  }
+
+  /** @return the slot holding {@code k} (already masked), or the free slot that ends its probe */
+  int probe(Object k) {
+    int i = slot(k);
+    while (keys[i] != null && keys[i] != k && !keys[i].equals(k)) {
+      i = (i + 1) & (capacity - 1);
+    }
+    return i;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Inserts an entry with {@code (key, value)} into this map. If a value with key {@code key}
+   * already existed, the old value is overwritten.
+   *
+   * @param key the key
+   * @param value the value
+   * @return the old value if {@code key} was present in the map, otherwise {@code null}.
+   */
+  @SuppressWarnings("unchecked")
+  public V insert(K key, V value) {
+    if ((double) (size + 1) / capacity > loadFactor) {
+      expand(capacity * 2);
+    }
+    Object k = maskNull(key);
+    int i = probe(k);
+    if (keys[i] == null) {
+      keys[i] = k;
+      values[i] = value;
+      ++size;
+      return null;
+    }
+    V v = (V) values[i];
+    values[i] = value;
+    return v;
+  }
+
+  /**
+   * Gets the value for {@code key}. Returns {@code null} if {@code key} is not found.
+   *
+   * @param key the key whose value to find
+   * @return the value for {@code key} or {@code null}
+   */
+  @SuppressWarnings("unchecked")
+  public V get(K key) {
+    return (V) values[probe(maskNull(key))];
+  }
+
+  /**
+   * Checks if this map contains an entry whose key is {@code key}.
+   *
+   * @param key the key to check
+   * @return {@code true} if the key is in this map, else {@code false}
+   */
+  public boolean hasKey(K key) {
+    return keys[probe(maskNull(key))] != null;
+  }
+
+  /**
+   * Delete the entry of a key, if it is present.
+   *
+   * <p>Instead of leaving a tombstone, the entries after the freed slot are shifted back into it
+   * when that keeps them reachable from their starting slot, so probe sequences never grow because
+   * of deletions.
+   *
+   * @param k key whose entry to delete if present
+   * @return {@code true} if key was found before deletion, else {@code false}
+   */
+  public boolean delete(K k) {
+    int hole = probe(maskNull(k));
+    if (keys[hole] == null) return false;
+    int mask = capacity - 1;
+    for (int i = (hole + 1) & mask; keys[i] != null; i = (i + 1) & mask) {
+      // keys[i] may fill the hole if the hole lies between its starting slot and i
+      if (((i - slot(keys[i])) & mask) >= ((i - hole) & mask)) {
+        keys[hole] = keys[i];
+        values[hole] = values[i];
+        hole = i;
+      }
+    }
+    keys[hole] = null;
+    values[hole] = null;
+    --size;
+    return true;
+  }
+}
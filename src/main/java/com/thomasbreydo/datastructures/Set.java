@@ -16,6 +16,14 @@ public class Set<E> {
     m = new Map<>(capacity, loadFactor);
   }
 
+  Set(int capacity, double loadFactor, HashingStrategy<? super E> strategy) {
+    m = new Map<>(capacity, loadFactor, strategy);
+  }
+
+  Set(HashingStrategy<? super E> strategy) {
+    m = new Map<>(strategy);
+  }
+
   int size() {
     return m.size();
   }
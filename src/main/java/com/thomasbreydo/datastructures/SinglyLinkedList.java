@@ -556,6 +556,7 @@ public class SinglyLinkedList<E> implements Collection<E>, List<E> {
 
   private Node<E> getNode(int index) {
     checkIndex(index);
+    FlightEvents.indexWalk(getClass(), index, size, index);
     Node<E> node = head;
     for (int i = 0; i < index; ++i) {
       node = node.next;
@@ -0,0 +1,248 @@
+package com.thomasbreydo.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * Hash-map with the same operations as {@link Map}, laid out like Abseil's SwissTable. Next to the
+ * {@code keys} and {@code values} arrays, every slot has a control byte: {@link #EMPTY}, {@link
+ * #DELETED}, or the low 7 bits of the hash of its key. Slots are probed in groups of {@link
+ * #GROUP_SIZE}, and all control bytes of a group are compared to the hash fragment at once (eight
+ * per {@code long}, using bit tricks), so {@code equals} is only called on keys whose fragment
+ * matches. A miss usually calls it not at all, which lets the table fill up to {@link
+ * #DEFAULT_LOAD_FACTOR}.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class SwissMap<K, V> {
+  static final int DEFAULT_CAPACITY = 16;
+  static final double DEFAULT_LOAD_FACTOR = 0.875;
+  static final int GROUP_SIZE = 16;
+  static final int WORDS_PER_GROUP = GROUP_SIZE / 8;
+  static final int EMPTY = 0x80;
+  static final int DELETED = 0xfe;
+  static final long LSBS = 0x0101010101010101L;
+  static final long MSBS = 0x8080808080808080L;
+
+  final double loadFactor;
+  int size;
+  /** Number of {@link #DELETED} slots, which end no probe and so count towards the load. */
+  int tombstones;
+  int capacity;
+  /** Control bytes, eight per word, slot {@code i} in byte {@code i % 8} of word {@code i / 8}. */
+  long[] ctrl;
+  Object[] keys;
+  Object[] values;
+
+  /**
+   * @param capacity initial number of slots, rounded up to a power of two of at least {@link
+   *     #GROUP_SIZE}
+   * @param loadFactor maximum ratio of used (full or deleted) slots to {@code capacity} ({@code 0 <
+   *     loadFactor < 1}, since probing stops at a free slot)
+   */
+  SwissMap(int capacity, double loadFactor) {
+    checkCapacity(capacity);
+    if (!(loadFactor > 0 && loadFactor < 1)) throw new IllegalArgumentException();
+    this.loadFactor = loadFactor;
+    allocate(capacity);
+  }
+
+  SwissMap(int capacity) {
+    this(capacity, DEFAULT_LOAD_FACTOR);
+  }
+
+  SwissMap() {
+    this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+  }
+
+  void checkCapacity(int capacity) {
+    if (capacity <= 0) throw new IllegalArgumentException();
+  }
+
+  void allocate(int capacity) {
+    this.capacity = Hashing.tableSize(Math.max(capacity, GROUP_SIZE));
+    ctrl = new long[this.capacity / 8];
+    Arrays.fill(ctrl, EMPTY * LSBS);
+    keys = new Object[this.capacity];
+    values = new Object[this.capacity];
+    tombstones = 0;
+  }
+
+  /** Resizes the table to {@code newCapacity} slots, which also drops all tombstones. */
+  void expand(int newCapacity) {
+    checkCapacity(newCapacity);
+    Object[] oldKeys = keys;
+    Object[] oldValues = values;
+    long[] oldCtrl = ctrl;
+    allocate(newCapacity);
+    for (int i = 0; i < oldKeys.length; ++i) {
+      if ((ctrlByte(oldCtrl, i) & EMPTY) == 0) {
+        // keys are unique, so just take the first free slot
+        int h = hash(oldKeys[i]);
+        int j = freeSlot(h);
+        setCtrl(j, h & 0x7f);
+        keys[j] = oldKeys[i];
+        values[j] = oldValues[i];
+      }
+    }
+  }
+
+  static int hash(Object k) {
+    return Hashing.mix(k.hashCode());
+  }
+
+  static int ctrlByte(long[] ctrl, int i) {
+    return (int) (ctrl[i >>> 3] >>> ((i & 7) << 3)) & 0xff;
+  }
+
+  void setCtrl(int i, int b) {
+    int shift = (i & 7) << 3;
+    ctrl[i >>> 3] = ctrl[i >>> 3] & ~(0xffL << shift) | (long) b << shift;
+  }
+
+  /**
+   * Sets the high bit of every byte of {@code word} that equals the byte of {@code pattern}. A byte
+   * right above a match may also be flagged, but only if it is full, so every candidate is checked
+   * with {@code equals} anyway.
+   */
+  static long matchByte(long word, long pattern) {
+    long x = word ^ pattern;
+    return (x - LSBS) & ~x & MSBS;
+  }
+
+  /** Sets the high bit of every {@link #EMPTY} byte of {@code word}. */
+  static long matchEmpty(long word) {
+    return word & (~word << 6) & MSBS;
+  }
+
+  /** Sets the high bit of every {@link #EMPTY} or {@link #DELETED} byte of {@code word}. */
+  static long matchFree(long word) {
+    return word & MSBS;
+  }
+
+  static int byteIndex(long match) {
+    return Long.numberOfTrailingZeros(match) >>> 3;
+  }
+
+  /**
+   * @return the slot holding {@code k} (already masked), whose hash is {@code h}, or {@code -1}
+   */
+  int find(Object k, int h) {
+    long pattern = (h & 0x7f) * LSBS;
+    int mask = capacity / GROUP_SIZE - 1;
+    // triangular steps visit every group, since the number of groups is a power of two
+    for (int g = (h >>> 7) & mask, step = 1; ; g = (g + step++) & mask) {
+      boolean hasEmpty = false;
+      for (int w = 0; w < WORDS_PER_GROUP; ++w) {
+        long word = ctrl[g * WORDS_PER_GROUP + w];
+        for (long m = matchByte(word, pattern); m != 0; m &= m - 1) {
+          int i = g * GROUP_SIZE + w * 8 + byteIndex(m);
+          if (keys[i] == k || keys[i].equals(k)) return i;
+        }
+        hasEmpty |= matchEmpty(word) != 0;
+      }
+      // a key is never placed after a group with an empty slot
+      if (hasEmpty) return -1;
+    }
+  }
+
+  /** @return the first empty or deleted slot on the probe sequence of hash {@code h} */
+  int freeSlot(int h) {
+    int mask = capacity / GROUP_SIZE - 1;
+    for (int g = (h >>> 7) & mask, step = 1; ; g = (g + step++) & mask) {
+      for (int w = 0; w < WORDS_PER_GROUP; ++w) {
+        long m = matchFree(ctrl[g * WORDS_PER_GROUP + w]);
+        if (m != 0) return g * GROUP_SIZE + w * 8 + byteIndex(m);
+      }
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Inserts an entry with {@code (key, value)} into this map. If a value with key {@code key}
+   * already existed, the old value is overwritten.
+   *
+   * @param key the key
+   * @param value the value
+   * @return the old value if {@code key} was present in the map, otherwise {@code null}.
+   */
+  @SuppressWarnings("unchecked")
+  public V insert(K key, V value) {
+    Object k = OpenAddressingMap.maskNull(key);
+    int h = hash(k);
+    int i = find(k, h);
+    if (i >= 0) {
+      V v = (V) values[i];
+      values[i] = value;
+      return v;
+    }
+    if ((double) (size + tombstones + 1) / capacity > loadFactor) {
+      // only grow if the live entries need it; otherwise rebuilding just clears the tombstones
+      expand((double) (size + 1) / capacity > loadFactor / 2 ? capacity * 2 : capacity);
+    }
+    i = freeSlot(h);
+    if (ctrlByte(ctrl, i) == DELETED) --tombstones;
+    setCtrl(i, h & 0x7f);
+    keys[i] = k;
+    values[i] = value;
+    ++size;
+    return null;
+  }
+
+  /**
+   * Gets the value for {@code key}. Returns {@code null} if {@code key} is not found.
+   *
+   * @param key the key whose value to find
+   * @return the value for {@code key} or {@code null}
+   */
+  @SuppressWarnings("unchecked")
+  public V get(K key) {
+    Object k = OpenAddressingMap.maskNull(key);
+    int i = find(k, hash(k));
+    return i < 0 ? null : (V) values[i];
+  }
+
+  /**
+   * Checks if this map contains an entry whose key is {@code key}.
+   *
+   * @param key the key to check
+   * @return {@code true} if the key is in this map, else {@code false}
+   */
+  public boolean hasKey(K key) {
+    Object k = OpenAddressingMap.maskNull(key);
+    return find(k, hash(k)) >= 0;
+  }
+
+  /**
+   * Delete the entry of a key, if it is present.
+   *
+   * <p>The slot becomes {@link #EMPTY} if its group already has an empty slot, since then no probe
+   * continues past the group; otherwise it becomes a {@link #DELETED} tombstone.
+   *
+   * @param k key whose entry to delete if present
+   * @return {@code true} if key was found before deletion, else {@code false}
+   */
+  public boolean delete(K k) {
+    Object masked = OpenAddressingMap.maskNull(k);
+    int i = find(masked, hash(masked));
+    if (i < 0) return false;
+    int g = i / GROUP_SIZE;
+    boolean hasEmpty = false;
+    for (int w = 0; w < WORDS_PER_GROUP; ++w) {
+      hasEmpty |= matchEmpty(ctrl[g * WORDS_PER_GROUP + w]) != 0;
+    }
+    if (hasEmpty) {
+      setCtrl(i, EMPTY);
+    } else {
+      setCtrl(i, DELETED);
+      ++tombstones;
+    }
+    keys[i] = null;
+    values[i] = null;
+    --size;
+    return true;
+  }
+}
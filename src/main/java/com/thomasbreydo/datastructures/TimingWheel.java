@@ -0,0 +1,113 @@
+package com.thomasbreydo.datastructures;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel (Varghese and Lauck): a set of timers, each of which fires once the
+ * clock passes its time. Every level of the wheel is a ring of {@link DoublyLinkedList} buckets,
+ * each covering a span of time; a timer is put into the bucket of the finest level whose ring still
+ * reaches its time. Scheduling and cancelling a timer take O(1).
+ *
+ * <p>{@link #advance} moves the clock forward. The buckets it passes are emptied: their timers fire
+ * if they are due, or move down to a finer level if not. So the clock can be advanced whenever is
+ * convenient, and a timer fires at the first advance after its time has come, give or take the span
+ * of a level-0 bucket (about a second).
+ *
+ * @param <T> timer type
+ */
+class TimingWheel<T extends TimingWheel.Timer> {
+  /** Number of buckets on each level. The last level has one bucket for everything further out. */
+  static final int[] BUCKETS = {64, 64, 32, 4, 1};
+  /** Nanoseconds covered by one bucket of each level: about 1.07 s, 1.14 min, 1.22 h, 0.81 d. */
+  static final long[] SPANS = {1L << 30, 1L << 36, 1L << 42, 1L << 46, 1L << 48};
+  static final int[] SHIFTS = {30, 36, 42, 46, 48};
+
+  final DoublyLinkedList<Timer>[][] wheel;
+  final Consumer<? super T> onFire;
+  /** Time the wheel was last advanced to. */
+  long nanos;
+
+  /**
+   * @param nanos current time, in nanoseconds
+   * @param onFire called with every timer that fires; it may schedule timers again
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  TimingWheel(long nanos, Consumer<? super T> onFire) {
+    this.nanos = nanos;
+    this.onFire = onFire;
+    wheel = (DoublyLinkedList<Timer>[][]) new DoublyLinkedList[BUCKETS.length][];
+    for (int i = 0; i < BUCKETS.length; ++i) {
+      wheel[i] = (DoublyLinkedList<Timer>[]) new DoublyLinkedList[BUCKETS[i]];
+      for (int j = 0; j < BUCKETS[i]; ++j) {
+        wheel[i][j] = new DoublyLinkedList<>();
+      }
+    }
+  }
+
+  /** @return the bucket for a timer at {@code time} */
+  DoublyLinkedList<Timer> bucket(long time) {
+    long duration = time - nanos;
+    int last = BUCKETS.length - 1;
+    for (int i = 0; i < last; ++i) {
+      if (duration < SPANS[i + 1]) {
+        long ticks = time >>> SHIFTS[i];
+        return wheel[i][(int) (ticks & (BUCKETS[i] - 1))];
+      }
+    }
+    return wheel[last][0];
+  }
+
+  /** Schedules {@code timer} to fire at {@code time}, cancelling its earlier schedule if any. */
+  void schedule(T timer, long time) {
+    cancel(timer);
+    timer.time = time;
+    timer.bucket = bucket(time);
+    timer.bucket.linkFirst(timer.link);
+  }
+
+  /** Makes sure {@code timer} won't fire, unless it is scheduled again. */
+  void cancel(Timer timer) {
+    if (timer.bucket != null) {
+      timer.bucket.toss(timer.link);
+      timer.bucket = null;
+    }
+  }
+
+  /** Moves the clock forward to {@code now} and fires the timers whose time has come. */
+  @SuppressWarnings("unchecked")
+  void advance(long now) {
+    long previous = nanos;
+    if (now - previous <= 0) return;
+    nanos = now;
+    for (int i = 0; i < BUCKETS.length; ++i) {
+      long previousTicks = previous >>> SHIFTS[i];
+      long delta = (now >>> SHIFTS[i]) - previousTicks;
+      if (delta <= 0) break;
+      // one more than delta, since the bucket holding previous may have timers before now
+      int steps = (int) Math.min(delta + 1, BUCKETS[i]);
+      for (int j = 0; j < steps; ++j) {
+        int k = (int) ((previousTicks + j) & (BUCKETS[i] - 1));
+        // swap in an empty bucket first, since timers that aren't due may be put back in this slot
+        DoublyLinkedList<Timer> bucket = wheel[i][k];
+        wheel[i][k] = new DoublyLinkedList<>();
+        while (bucket.head != null) {
+          Timer timer = bucket.head.val;
+          cancel(timer);
+          if (timer.time - now <= 0) {
+            onFire.accept((T) timer);
+          } else {
+            schedule((T) timer, timer.time);
+          }
+        }
+      }
+    }
+  }
+
+  /** Something that can be scheduled on a {@link TimingWheel}. */
+  static class Timer {
+    long time;
+    /** Bucket holding this timer, or {@code null} if it isn't scheduled. */
+    DoublyLinkedList<Timer> bucket;
+    final DoublyLinkedList.Node<Timer> link = new DoublyLinkedList.Node<>(this, null, null);
+  }
+}
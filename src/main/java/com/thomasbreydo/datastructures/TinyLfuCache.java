@@ -0,0 +1,298 @@
+package com.thomasbreydo.datastructures;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe cache of at most {@code maximumSize} entries with the Window TinyLFU policy
+ * (Einziger, Friedman and Manes), which keeps frequently used entries even when a scan streams many
+ * new keys through the cache.
+ *
+ * <p>New entries go into a small LRU window. An entry pushed out of the window is a candidate for
+ * the main region, a segmented LRU: entries start in its probation segment and move to the
+ * protected segment once they are used again. When the main region is full, the candidate is only
+ * admitted if a {@link FrequencySketch} says it was used more often than the entry the main region
+ * would evict; otherwise the candidate is evicted instead.
+ *
+ * <p>Entries are stored in a {@link ConcurrentMap}, so reads never lock. A hit is only recorded in
+ * one of several striped ring buffers, and a miss in another set of them, since a key that keeps
+ * being asked for must build up its frequency even while it isn't cached. The policy applies the
+ * recorded reads in a batch whenever a buffer fills up or a write happens. A read buffer that is
+ * full or contended drops the read, which only makes the policy a little less exact. Writes change
+ * the map and the policy under one lock.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class TinyLfuCache<K, V> {
+  static final int WINDOW = 0;
+  static final int PROBATION = 1;
+  static final int PROTECTED = 2;
+  /** Queue of a node that was evicted or deleted. */
+  static final int DEAD = -1;
+  /** Percentage of {@code maximumSize} given to the window. */
+  static final int WINDOW_PERCENT = 1;
+  /** Percentage of the main region given to the protected segment. */
+  static final int PROTECTED_PERCENT = 80;
+  static final int READ_BUFFER_SIZE = 16;
+
+  final int maximumSize;
+  final int windowMaximum;
+  final int protectedMaximum;
+  final ConcurrentMap<K, Node<K, V>> data = new ConcurrentMap<>();
+  final ReentrantLock evictionLock = new ReentrantLock();
+  /** Buffers of the nodes that were hit. */
+  final ReadBuffer[] readBuffers;
+  /** Buffers of the keys that were missed. */
+  final ReadBuffer[] missBuffers;
+  /** The policy's state below is guarded by {@link #evictionLock}. */
+  final FrequencySketch sketch;
+
+  final DoublyLinkedList<Node<K, V>> window = new DoublyLinkedList<>();
+  final DoublyLinkedList<Node<K, V>> probation = new DoublyLinkedList<>();
+  final DoublyLinkedList<Node<K, V>> protectedQueue = new DoublyLinkedList<>();
+
+  /** @param maximumSize maximum number of entries ({@code maximumSize > 0}) */
+  TinyLfuCache(int maximumSize) {
+    if (maximumSize <= 0) throw new IllegalArgumentException();
+    this.maximumSize = maximumSize;
+    windowMaximum = Math.max(1, (int) ((long) maximumSize * WINDOW_PERCENT / 100));
+    protectedMaximum = (int) ((long) (maximumSize - windowMaximum) * PROTECTED_PERCENT / 100);
+    sketch = new FrequencySketch(maximumSize);
+    int stripes = Hashing.tableSize(Runtime.getRuntime().availableProcessors());
+    readBuffers = new ReadBuffer[stripes];
+    missBuffers = new ReadBuffer[stripes];
+    for (int i = 0; i < stripes; ++i) {
+      readBuffers[i] = new ReadBuffer(false);
+      missBuffers[i] = new ReadBuffer(true);
+    }
+  }
+
+  public int size() {
+    return data.size();
+  }
+
+  DoublyLinkedList<Node<K, V>> queue(int queue) {
+    return queue == WINDOW ? window : queue == PROBATION ? probation : protectedQueue;
+  }
+
+  /**
+   * Gets the value for {@code key}. Returns {@code null} if {@code key} is not found.
+   *
+   * @param key the key whose value to find
+   * @return the value for {@code key} or {@code null}
+   * @throws NullPointerException if {@code key} is {@code null}
+   */
+  public V get(K key) {
+    Node<K, V> node = data.get(key);
+    ReadBuffer[] buffers = node == null ? missBuffers : readBuffers;
+    ReadBuffer buffer = buffers[Hashing.mix(Thread.currentThread().getId()) & (buffers.length - 1)];
+    if (buffer.offer(node == null ? key : node) && evictionLock.tryLock()) {
+      try {
+        drainReadBuffers();
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+    return node == null ? null : node.value;
+  }
+
+  /**
+   * Checks if this cache contains an entry whose key is {@code key}, without recording a use.
+   *
+   * @param key the key to check
+   * @return {@code true} if the key is in this cache, else {@code false}
+   * @throws NullPointerException if {@code key} is {@code null}
+   */
+  public boolean hasKey(K key) {
+    return data.hasKey(key);
+  }
+
+  /**
+   * Inserts an entry with {@code (key, value)} into this cache. If a value with key {@code key}
+   * already existed, the old value is overwritten. The cache may then evict an entry, which can be
+   * the new one.
+   *
+   * @param key the key
+   * @param value the value
+   * @return the old value if {@code key} was present in the cache, otherwise {@code null}.
+   * @throws NullPointerException if {@code key} or {@code value} is {@code null}
+   */
+  public V insert(K key, V value) {
+    if (value == null) throw new NullPointerException();
+    evictionLock.lock();
+    try {
+      drainReadBuffers();
+      Node<K, V> node = data.get(key);
+      if (node != null) {
+        V v = node.value;
+        node.value = value;
+        onAccess(node);
+        return v;
+      }
+      node = new Node<>(key, value);
+      data.insert(key, node);
+      onAdd(node);
+      return null;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Delete the entry of a key, if it is present.
+   *
+   * @param k key whose entry to delete if present
+   * @return {@code true} if key was found before deletion, else {@code false}
+   * @throws NullPointerException if {@code k} is {@code null}
+   */
+  public boolean delete(K k) {
+    evictionLock.lock();
+    try {
+      drainReadBuffers();
+      Node<K, V> node = data.get(k);
+      if (node == null) return false;
+      data.delete(k);
+      queue(node.queue).toss(node.link);
+      node.queue = DEAD;
+      return true;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /** Applies the hits and misses recorded in the read buffers. Must hold {@link #evictionLock}. */
+  void drainReadBuffers() {
+    for (ReadBuffer buffer : readBuffers) {
+      buffer.drainTo(this);
+    }
+    for (ReadBuffer buffer : missBuffers) {
+      buffer.drainTo(this);
+    }
+  }
+
+  /** Updates the policy for a miss on {@code key}. Must hold {@link #evictionLock}. */
+  void onMiss(K key) {
+    sketch.increment(key.hashCode());
+  }
+
+  /** Updates the policy for a hit on {@code node}. Must hold {@link #evictionLock}. */
+  void onAccess(Node<K, V> node) {
+    if (node.queue == DEAD) return; // evicted after the hit was buffered
+    sketch.increment(node.key.hashCode());
+    if (node.queue != PROBATION) {
+      queue(node.queue).moveToFront(node.link);
+      return;
+    }
+    probation.toss(node.link);
+    protectedQueue.linkFirst(node.link);
+    node.queue = PROTECTED;
+    if (protectedQueue.size() > protectedMaximum) {
+      Node<K, V> demoted = protectedQueue.tail.val;
+      protectedQueue.toss(demoted.link);
+      probation.linkFirst(demoted.link);
+      demoted.queue = PROBATION;
+    }
+  }
+
+  /** Adds {@code node} to the window and evicts if needed. Must hold {@link #evictionLock}. */
+  void onAdd(Node<K, V> node) {
+    sketch.increment(node.key.hashCode());
+    window.linkFirst(node.link);
+    node.queue = WINDOW;
+    if (window.size() <= windowMaximum) return;
+    Node<K, V> candidate = window.tail.val;
+    window.toss(candidate.link);
+    if (probation.size() + protectedQueue.size() < maximumSize - windowMaximum) {
+      probation.linkFirst(candidate.link);
+      candidate.queue = PROBATION;
+      return;
+    }
+    DoublyLinkedList<Node<K, V>> victims = probation.isEmpty() ? protectedQueue : probation;
+    if (victims.isEmpty()) { // the main region has no room at all
+      evict(candidate);
+      return;
+    }
+    Node<K, V> victim = victims.tail.val;
+    if (sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode())) {
+      victims.toss(victim.link);
+      evict(victim);
+      probation.linkFirst(candidate.link);
+      candidate.queue = PROBATION;
+    } else {
+      evict(candidate);
+    }
+  }
+
+  /** Removes {@code node}, which is in no queue anymore. Must hold {@link #evictionLock}. */
+  void evict(Node<K, V> node) {
+    node.queue = DEAD;
+    data.delete(node.key);
+  }
+
+  static final class Node<K, V> {
+    final K key;
+    volatile V value;
+    /** {@link #WINDOW}, {@link #PROBATION}, {@link #PROTECTED} or {@link #DEAD}. */
+    int queue;
+    final DoublyLinkedList.Node<Node<K, V>> link;
+
+    Node(K key, V value) {
+      this.key = key;
+      this.value = value;
+      link = new DoublyLinkedList.Node<>(this, null, null);
+    }
+  }
+
+  /**
+   * Lossy ring buffer of recent hits (nodes) or misses (keys). Any thread may add to it, but only
+   * the holder of the eviction lock reads from it.
+   */
+  static final class ReadBuffer {
+    final AtomicReferenceArray<Object> slots = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    final AtomicLong writeCount = new AtomicLong();
+    /** Whether this buffer holds the keys of misses rather than the nodes of hits. */
+    final boolean misses;
+    volatile long readCount;
+
+    ReadBuffer(boolean misses) {
+      this.misses = misses;
+    }
+
+    /**
+     * Records {@code read}, a node or a key, or drops it if the buffer is full or
+     * another thread is adding at the same time.
+     *
+     * @return {@code true} if the buffer is full and should be drained
+     */
+    boolean offer(Object read) {
+      long tail = writeCount.get();
+      long size = tail - readCount;
+      if (size >= READ_BUFFER_SIZE) return true;
+      if (writeCount.compareAndSet(tail, tail + 1)) {
+        slots.lazySet((int) (tail & (READ_BUFFER_SIZE - 1)), read);
+        return size + 1 == READ_BUFFER_SIZE;
+      }
+      return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    <K, V> void drainTo(TinyLfuCache<K, V> cache) {
+      long head = readCount;
+      long tail = writeCount.get();
+      for (; head < tail; ++head) {
+        int i = (int) (head & (READ_BUFFER_SIZE - 1));
+        Object read = slots.get(i);
+        if (read == null) break; // claimed, but not written yet
+        slots.lazySet(i, null);
+        if (misses) {
+          cache.onMiss((K) read);
+        } else {
+          cache.onAccess((Node<K, V>) read);
+        }
+      }
+      readCount = head;
+    }
+  }
+}
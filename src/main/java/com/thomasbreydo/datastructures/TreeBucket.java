@@ -0,0 +1,253 @@
+package com.thomasbreydo.datastructures;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Bucket of a {@link Map} that holds too many entries to be scanned as a list. The entries are
+ * kept in an AVL tree ordered by hash, then (if both keys are {@link Comparable} and of the same
+ * class) by {@code compareTo}. Keys that can't be ordered that way are placed by an arbitrary tie
+ * break, so a lookup for such a key may have to search both subtrees of a node; every other
+ * lookup takes O(log n).
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+class TreeBucket<K, V> implements Iterable<Map.Entry<K, V>> {
+  final HashingStrategy<? super K> strategy;
+  /**
+   * {@code compareTo} only orders keys that a custom {@link HashingStrategy} considers equal the
+   * same way as it does for the natural one, so it is only used if the strategy says so.
+   */
+  final boolean ordered;
+
+  int size;
+  Node<K, V> root;
+  /** Set by {@link #remove(Node, int, Object)} to the removed entry. */
+  Map.Entry<K, V> removed;
+
+  /** Builds a tree of {@code entries}, whose keys are compared with {@code strategy}. */
+  TreeBucket(Iterable<Map.Entry<K, V>> entries, HashingStrategy<? super K> strategy) {
+    this.strategy = strategy;
+    ordered = strategy.consistentWithCompareTo();
+    for (Map.Entry<K, V> entry : entries) {
+      add(entry.hash, entry);
+    }
+  }
+
+  /**
+   * @param h hash of {@code key}
+   * @return the entry with key {@code key}, or {@code null}
+   */
+  Map.Entry<K, V> find(int h, K key) {
+    Node<K, V> node = find(root, h, key);
+    return node == null ? null : node.entry;
+  }
+
+  Node<K, V> find(Node<K, V> node, int h, K key) {
+    while (node != null) {
+      if (h != node.hash) {
+        node = h < node.hash ? node.left : node.right;
+        continue;
+      }
+      K k = node.entry.key;
+      if (strategy.equals(k, key)) return node;
+      int c = compareKeys(key, k);
+      if (c < 0) {
+        node = node.left;
+      } else if (c > 0) {
+        node = node.right;
+      } else {
+        // the key may have been put on either side by the tie break
+        Node<K, V> found = find(node.right, h, key);
+        if (found != null) return found;
+        node = node.left;
+      }
+    }
+    return null;
+  }
+
+  /** Adds {@code entry}, whose key must not be in this bucket yet. */
+  void add(int h, Map.Entry<K, V> entry) {
+    root = add(root, new Node<>(h, entry));
+    ++size;
+  }
+
+  Node<K, V> add(Node<K, V> node, Node<K, V> added) {
+    if (node == null) return added;
+    if (compare(added, node) < 0) {
+      node.left = add(node.left, added);
+    } else {
+      node.right = add(node.right, added);
+    }
+    return balance(node);
+  }
+
+  /**
+   * @param h hash of {@code key}
+   * @return the removed entry, or {@code null} if no entry has key {@code key}
+   */
+  Map.Entry<K, V> remove(int h, K key) {
+    removed = null;
+    root = remove(root, h, key);
+    Map.Entry<K, V> entry = removed;
+    removed = null;
+    if (entry != null) --size;
+    return entry;
+  }
+
+  Node<K, V> remove(Node<K, V> node, int h, K key) {
+    if (node == null) return null;
+    if (h != node.hash) {
+      if (h < node.hash) {
+        node.left = remove(node.left, h, key);
+      } else {
+        node.right = remove(node.right, h, key);
+      }
+      return balance(node);
+    }
+    if (strategy.equals(node.entry.key, key)) {
+      removed = node.entry;
+      if (node.left == null) return node.right;
+      if (node.right == null) return node.left;
+      // take the place of the successor, which keeps the in-order sequence intact
+      Node<K, V> successor = node.right;
+      while (successor.left != null) {
+        successor = successor.left;
+      }
+      node.right = removeMin(node.right);
+      node.hash = successor.hash;
+      node.entry = successor.entry;
+      return balance(node);
+    }
+    int c = compareKeys(key, node.entry.key);
+    if (c <= 0) node.left = remove(node.left, h, key);
+    if (c >= 0 && removed == null) node.right = remove(node.right, h, key);
+    return balance(node);
+  }
+
+  Node<K, V> removeMin(Node<K, V> node) {
+    if (node.left == null) return node.right;
+    node.left = removeMin(node.left);
+    return balance(node);
+  }
+
+  int compareKeys(Object a, Object b) {
+    return ordered ? compareComparables(a, b) : 0;
+  }
+
+  /**
+   * @return the result of {@code a.compareTo(b)} if both are {@link Comparable}s of the same
+   *     class, else {@code 0}
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  static int compareComparables(Object a, Object b) {
+    if (a instanceof Comparable && b != null && a.getClass() == b.getClass()) {
+      return ((Comparable) a).compareTo(b);
+    }
+    return 0;
+  }
+
+  /**
+   * Orders nodes by hash, then by {@code compareTo}, then by class name and identity hash code,
+   * with a {@code null} key first. The class name comes before the identity hash code so the
+   * order stays transitive when keys of several classes collide.
+   */
+  int compare(Node<?, ?> a, Node<?, ?> b) {
+    if (a.hash != b.hash) return a.hash < b.hash ? -1 : 1;
+    Object x = a.entry.key;
+    Object y = b.entry.key;
+    if (x == null || y == null) return x == null ? -1 : 1; // keys are unique, so only one is null
+    int c = compareKeys(x, y);
+    if (c != 0) return c;
+    c = x.getClass().getName().compareTo(y.getClass().getName());
+    if (c != 0) return c;
+    return System.identityHashCode(x) <= System.identityHashCode(y) ? -1 : 1;
+  }
+
+  static int height(Node<?, ?> node) {
+    return node == null ? 0 : node.height;
+  }
+
+  static <K, V> Node<K, V> balance(Node<K, V> node) {
+    int diff = height(node.left) - height(node.right);
+    if (diff > 1) {
+      if (height(node.left.left) < height(node.left.right)) {
+        node.left = rotateLeft(node.left);
+      }
+      return rotateRight(node);
+    }
+    if (diff < -1) {
+      if (height(node.right.right) < height(node.right.left)) {
+        node.right = rotateRight(node.right);
+      }
+      return rotateLeft(node);
+    }
+    node.updateHeight();
+    return node;
+  }
+
+  static <K, V> Node<K, V> rotateLeft(Node<K, V> node) {
+    Node<K, V> right = node.right;
+    node.right = right.left;
+    right.left = node;
+    node.updateHeight();
+    right.updateHeight();
+    return right;
+  }
+
+  static <K, V> Node<K, V> rotateRight(Node<K, V> node) {
+    Node<K, V> left = node.left;
+    node.left = left.right;
+    left.right = node;
+    node.updateHeight();
+    left.updateHeight();
+    return left;
+  }
+
+  /**
+   * Returns an iterator over the entries of this bucket, in tree order.
+   *
+   * @return an iterator over the entries of this bucket
+   */
+  @Override
+  public Iterator<Map.Entry<K, V>> iterator() {
+    Stack<Node<K, V>> path = new Stack<>();
+    for (Node<K, V> node = root; node != null; node = node.left) {
+      path.push(node);
+    }
+    return new Iterator<Map.Entry<K, V>>() {
+      @Override
+      public boolean hasNext() {
+        return !path.empty();
+      }
+
+      @Override
+      public Map.Entry<K, V> next() {
+        if (path.empty()) throw new NoSuchElementException();
+        Node<K, V> node = path.pop();
+        for (Node<K, V> n = node.right; n != null; n = n.left) {
+          path.push(n);
+        }
+        return node.entry;
+      }
+    };
+  }
+
+  static class Node<K, V> {
+    int hash;
+    Map.Entry<K, V> entry;
+    Node<K, V> left;
+    Node<K, V> right;
+    int height = 1;
+
+    Node(int hash, Map.Entry<K, V> entry) {
+      this.hash = hash;
+      this.entry = entry;
+    }
+
+    void updateHeight() {
+      height = Math.max(height(left), height(right)) + 1;
+    }
+  }
+}
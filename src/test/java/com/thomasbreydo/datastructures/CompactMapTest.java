@@ -0,0 +1,173 @@
+package com.thomasbreydo.datastructures;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactMapTest {
+  CompactMap<Integer, Integer> m;
+
+  @BeforeEach
+  void setUp() {
+    m = new CompactMap<>();
+  }
+
+  @Test
+  void expand() {
+    assertEquals(CompactMap.DEFAULT_CAPACITY, m.capacity);
+    assertEquals(12, m.keys.length);
+    m.insert(1, 2);
+    m.expand(20);
+    assertEquals(32, m.capacity);
+    assertEquals(24, m.keys.length);
+    assertEquals(2, m.get(1));
+  }
+
+  @Test
+  void smallLoadFactor() {
+    m = new CompactMap<>(16, 0.05);
+    for (int i = 0; i < 100; ++i) {
+      assertNull(m.insert(i, i));
+    }
+    assertEquals(100, m.size());
+    for (int i = 0; i < 100; ++i) {
+      assertEquals(i, m.get(i));
+    }
+    assertTrue(m.keys.length >= 100);
+  }
+
+  @Test
+  void maximumCapacity() {
+    m.used = m.keys.length;
+    m.size = m.used;
+    assertEquals(2 * m.capacity, m.nextCapacity());
+    m.capacity = Hashing.MAX_CAPACITY; // as if it had grown that far
+    assertEquals(Hashing.MAX_CAPACITY, m.nextCapacity());
+  }
+
+  @Test
+  void size() {
+    assertEquals(0, m.size());
+    assertNull(m.insert(3, 6));
+    assertEquals(1, m.size());
+    assertEquals(6, m.insert(3, 5));
+    assertEquals(1, m.size());
+    assertTrue(m.delete(3));
+    assertEquals(0, m.size());
+  }
+
+  @Test
+  void insert() {
+    m = new CompactMap<>(4);
+    assertNull(m.insert(1, 2));
+    assertNull(m.insert(2, 4));
+    assertNull(m.insert(3, null));
+    assertEquals(4, m.capacity);
+    assertNull(m.insert(4, 8));
+    assertEquals(8, m.capacity);
+    assertEquals(4, m.size);
+    assertThrows(IllegalArgumentException.class, () -> new CompactMap<>(4, 0));
+    assertThrows(IllegalArgumentException.class, () -> new CompactMap<>(0));
+  }
+
+  @Test
+  void get() {
+    assertNull(m.get(0));
+    m.insert(0, 5);
+    assertEquals(5, m.get(0));
+    m.insert(1000, 6);
+    assertEquals(6, m.get(1000));
+    m.insert(null, 7);
+    assertEquals(7, m.get(null));
+    for (int i = 0; i < 1000; ++i) {
+      m.insert(i, -i);
+    }
+    for (int i = 0; i < 1000; ++i) {
+      assertEquals(-i, m.get(i));
+    }
+    assertEquals(1002, m.size());
+  }
+
+  @Test
+  void hasKey() {
+    assertFalse(m.hasKey(null));
+    assertFalse(m.hasKey(9));
+    m.insert(9, 5);
+    assertTrue(m.hasKey(9));
+    assertFalse(m.hasKey(null));
+    m.insert(null, null);
+    assertTrue(m.hasKey(9));
+    assertTrue(m.hasKey(null));
+  }
+
+  @Test
+  void delete() {
+    assertFalse(m.delete(null));
+    assertFalse(m.delete(0));
+    m.insert(0, null);
+    m.insert(null, 1);
+    assertEquals(2, m.size);
+    assertTrue(m.delete(null));
+    assertFalse(m.delete(null));
+    assertEquals(1, m.size);
+    assertTrue(m.delete(0));
+    assertEquals(0, m.size);
+  }
+
+  @Test
+  void deleteKeepsChains() {
+    m = new CompactMap<>(16, 0.75, new MapTest.Modulo(2));
+    for (int i = 0; i < 12; ++i) {
+      m.insert(i, i);
+    }
+    for (int i = 0; i < 12; i += 3) {
+      assertTrue(m.delete(i));
+    }
+    for (int i = 0; i < 12; ++i) {
+      assertEquals(i % 3 == 0 ? null : i, m.get(i));
+    }
+  }
+
+  @Test
+  void insertionOrder() {
+    for (int i = 99; i >= 0; --i) {
+      m.insert(i, i);
+    }
+    for (int i = 0; i < 100; i += 2) {
+      assertTrue(m.delete(i));
+    }
+    m.insert(1, -1);
+    m.insert(0, 0);
+    List<Integer> keys = new ArrayList<>();
+    for (Integer key : m.keys()) {
+      keys.add(key);
+    }
+    assertEquals(51, keys.size());
+    for (int i = 0; i < 50; ++i) {
+      assertEquals(99 - 2 * i, keys.get(i));
+    }
+    assertEquals(0, keys.get(50));
+    List<Integer> values = new ArrayList<>();
+    m.forEach((k, v) -> values.add(v));
+    assertEquals(-1, values.get(49));
+    assertEquals(0, values.get(50));
+  }
+
+  @Test
+  void deletesArePacked() {
+    m = new CompactMap<>(16);
+    for (int i = 0; i < 1000; ++i) {
+      m.insert(i, i);
+      assertTrue(m.delete(i));
+    }
+    assertEquals(16, m.capacity);
+    assertEquals(0, m.size());
+    assertFalse(m.keys().iterator().hasNext());
+    m.insert(5, 5);
+    assertEquals(5, m.get(5));
+  }
+}
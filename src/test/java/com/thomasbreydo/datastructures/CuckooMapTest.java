@@ -0,0 +1,128 @@
+package com.thomasbreydo.datastructures;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CuckooMapTest {
+  CuckooMap<Integer, Integer> m;
+
+  @BeforeEach
+  void setUp() {
+    m = new CuckooMap<>();
+  }
+
+  @Test
+  void expand() {
+    assertEquals(CuckooMap.DEFAULT_CAPACITY, m.capacity);
+    m.insert(1, 2);
+    m.expand(20);
+    assertEquals(32, m.capacity);
+    assertEquals(2, m.get(1));
+  }
+
+  @Test
+  void size() {
+    assertEquals(0, m.size());
+    assertNull(m.insert(3, 6));
+    assertEquals(1, m.size());
+    assertEquals(6, m.insert(3, 5));
+    assertEquals(1, m.size());
+    assertTrue(m.delete(3));
+    assertEquals(0, m.size());
+  }
+
+  @Test
+  void insert() {
+    m = new CuckooMap<>(4, 0.5);
+    assertEquals(4, m.capacity);
+    assertNull(m.insert(1, 2));
+    assertNull(m.insert(2, 4));
+    assertEquals(4, m.capacity);
+    assertNull(m.insert(3, null));
+    assertEquals(8, m.capacity);
+    assertEquals(3, m.size);
+    assertThrows(IllegalArgumentException.class, () -> new CuckooMap<>(4, 1));
+  }
+
+  @Test
+  void get() {
+    assertNull(m.get(0));
+    m.insert(0, 5);
+    assertEquals(5, m.get(0));
+    m.insert(1000, 6);
+    assertEquals(6, m.get(1000));
+    assertNull(m.get(null));
+    m.insert(null, 7);
+    assertEquals(7, m.get(null));
+  }
+
+  @Test
+  void delete() {
+    assertFalse(m.delete(null));
+    assertFalse(m.delete(0));
+    m.insert(0, null);
+    assertFalse(m.delete(null));
+    assertTrue(m.delete(0));
+    assertFalse(m.hasKey(0));
+    assertEquals(0, m.size);
+  }
+
+  @Test
+  void many() {
+    for (int i = 0; i < 100000; ++i) {
+      m.insert(i, -i);
+    }
+    assertEquals(100000, m.size());
+    assertTrue(m.size <= m.capacity * m.loadFactor);
+    for (int i = 0; i < 100000; i += 3) {
+      assertTrue(m.delete(i));
+    }
+    for (int i = 0; i < 100000; ++i) {
+      assertEquals(i % 3 == 0 ? null : -i, m.get(i));
+    }
+  }
+
+  @Test
+  void stashAndRehash() {
+    // every key hashes to the same two buckets, so only 2 * BUCKET_SIZE + STASH_SIZE of them fit
+    CuckooMap<Collider, Integer> c = new CuckooMap<>(1024);
+    int fit = 2 * CuckooMap.BUCKET_SIZE + CuckooMap.STASH_SIZE;
+    for (int i = 0; i < fit; ++i) {
+      c.insert(new Collider(i), i);
+    }
+    assertEquals(1024, c.capacity);
+    assertEquals(CuckooMap.STASH_SIZE, c.stashSize);
+    assertTrue(c.delete(new Collider(0)));
+    assertEquals(CuckooMap.STASH_SIZE - 1, c.stashSize);
+    for (int i = 1; i < fit; ++i) {
+      assertEquals(i, c.get(new Collider(i)));
+    }
+    for (int i = fit; i < 100; ++i) {
+      c.insert(new Collider(i), i);
+    }
+    assertEquals(99, c.size());
+    for (int i = 1; i < 100; ++i) {
+      assertEquals(i, c.get(new Collider(i)));
+    }
+  }
+
+  static class Collider {
+    final int id;
+
+    Collider(int id) {
+      this.id = id;
+    }
+
+    @Override
+    public int hashCode() {
+      return 42;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Collider && ((Collider) o).id == id;
+    }
+  }
+}
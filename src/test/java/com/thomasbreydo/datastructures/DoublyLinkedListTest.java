@@ -216,6 +216,29 @@ class DoublyLinkedListTest {
     assertNull(list.head.val);
   }
 
+  @Test
+  void moveToFront() {
+    list.add(1);
+    list.add(2);
+    list.add(3);
+    list.moveToFront(list.tail);
+    assertEquals("[3, 1, 2]", list.toString());
+    assertEquals(2, list.tail.val);
+    list.moveToFront(list.head.next);
+    assertEquals("[1, 3, 2]", list.toString());
+    list.moveToFront(list.head);
+    assertEquals("[1, 3, 2]", list.toString());
+    assertEquals(3, list.size());
+    list.toss(list.head);
+    list.toss(list.head);
+    list.toss(list.head);
+    assertNull(list.head);
+    assertNull(list.tail);
+    list.linkFirst(new DoublyLinkedList.Node<>(7, null, null));
+    assertEquals(7, list.head.val);
+    assertEquals(7, list.tail.val);
+  }
+
   @Test
   void addAll() {
     // array needs to implement Collection
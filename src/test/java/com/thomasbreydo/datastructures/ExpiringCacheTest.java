@@ -0,0 +1,88 @@
+package com.thomasbreydo.datastructures;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpiringCacheTest {
+  static final long SECOND = 1_000_000_000L;
+
+  ExpiringCache<Integer, Integer> c;
+  long now;
+
+  @BeforeEach
+  void setUp() {
+    now = 0;
+    c = new ExpiringCache<>(10 * SECOND, ExpiringCache.NEVER, () -> now);
+  }
+
+  @Test
+  void size() {
+    assertEquals(0, c.size());
+    assertNull(c.insert(3, 6));
+    assertEquals(1, c.size());
+    assertEquals(6, c.insert(3, 5));
+    assertEquals(1, c.size());
+    assertTrue(c.delete(3));
+    assertFalse(c.delete(3));
+    assertEquals(0, c.size());
+    assertThrows(IllegalArgumentException.class, () -> new ExpiringCache<>(0, 1));
+  }
+
+  @Test
+  void expireAfterWrite() {
+    c.insert(1, 1);
+    now += 6 * SECOND;
+    c.insert(2, 2);
+    assertEquals(1, c.get(1));
+    now += 5 * SECOND;
+    assertNull(c.get(1));
+    assertFalse(c.hasKey(1));
+    assertEquals(2, c.get(2));
+    assertNull(c.insert(1, 10));
+    now += 5 * SECOND;
+    assertFalse(c.hasKey(2));
+    assertFalse(c.delete(2));
+    assertEquals(10, c.insert(1, 11)); // restarts the time to live
+    now += 9 * SECOND;
+    assertEquals(11, c.get(1));
+  }
+
+  @Test
+  void expireAfterAccess() {
+    c = new ExpiringCache<>(ExpiringCache.NEVER, 10 * SECOND, () -> now);
+    c.insert(1, 1);
+    c.insert(2, 2);
+    for (int i = 0; i < 10; ++i) {
+      now += 6 * SECOND;
+      assertEquals(1, c.get(1));
+    }
+    assertFalse(c.hasKey(2));
+    now += 11 * SECOND;
+    assertFalse(c.hasKey(1));
+  }
+
+  @Test
+  void bothLimits() {
+    c = new ExpiringCache<>(20 * SECOND, 10 * SECOND, () -> now);
+    c.insert(1, 1);
+    now += 8 * SECOND;
+    assertEquals(1, c.get(1));
+    now += 8 * SECOND;
+    assertEquals(1, c.get(1));
+    now += 5 * SECOND; // accessed 5 s ago, but written 21 s ago
+    assertNull(c.get(1));
+  }
+
+  @Test
+  void cleanedUpWithoutReads() {
+    for (int i = 0; i < 1000; ++i) {
+      c.insert(i, i);
+    }
+    now += 15 * SECOND;
+    c.insert(-1, -1);
+    assertEquals(1, c.size());
+    assertEquals(1, c.nodes.size());
+  }
+}
@@ -0,0 +1,111 @@
+package com.thomasbreydo.datastructures;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightEventsTest {
+  static final String PREFIX = "com.thomasbreydo.datastructures.";
+
+  /** @return the events of {@code name} recorded while running {@code action} */
+  static List<RecordedEvent> record(String name, String setting, String value, Runnable action)
+      throws IOException {
+    Path file = Files.createTempFile("events", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(PREFIX + name).with(setting, value);
+      recording.start();
+      action.run();
+      recording.stop();
+      recording.dump(file);
+      List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+      events.removeIf(event -> !event.getEventType().getName().equals(PREFIX + name));
+      return events;
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  void available() {
+    assertTrue(FlightEvents.AVAILABLE);
+  }
+
+  @Test
+  void mapExpand() throws IOException {
+    List<RecordedEvent> events =
+        record(
+            "MapExpand",
+            "threshold",
+            "0 ms",
+            () -> {
+              Map<Integer, Integer> m = new Map<>(4);
+              for (int i = 0; i < 4; ++i) {
+                m.insert(i, i);
+              }
+            });
+    assertEquals(1, events.size());
+    assertEquals(4, events.get(0).getInt("oldCapacity"));
+    assertEquals(8, events.get(0).getInt("newCapacity"));
+    assertEquals(3, events.get(0).getInt("size"));
+  }
+
+  @Test
+  void bucketScan() throws IOException {
+    Map<Integer, Integer> m = new Map<>(64, 0.75, new MapTest.Modulo(64));
+    for (int i = 0; i < 3; ++i) {
+      m.insert(i * 64, i);
+    }
+    m.insert(1, 1);
+    List<RecordedEvent> events =
+        record(
+            "BucketScan",
+            "minProbes",
+            "2",
+            () -> {
+              m.get(0); // only compared with the first entry
+              m.get(128);
+              m.get(1);
+            });
+    assertEquals(1, events.size());
+    assertEquals(3, events.get(0).getInt("probes"));
+    assertFalse(events.get(0).getBoolean("tree"));
+    assertEquals(64, events.get(0).getInt("capacity"));
+  }
+
+  @Test
+  void indexWalk() throws IOException {
+    DoublyLinkedList<Integer> doubly = new DoublyLinkedList<>();
+    SinglyLinkedList<Integer> singly = new SinglyLinkedList<>();
+    for (int i = 0; i < 100; ++i) {
+      doubly.add(i);
+      singly.add(i);
+    }
+    List<RecordedEvent> events =
+        record(
+            "IndexWalk",
+            "minSteps",
+            "40",
+            () -> {
+              doubly.get(45);
+              doubly.get(55); // 44 nodes from the tail
+              doubly.get(70);
+              singly.add(46, -1); // walks to the node before index 46
+              singly.add(10, -1);
+            });
+    assertEquals(3, events.size());
+    assertEquals(45, events.get(0).getInt("steps"));
+    assertEquals(55, events.get(1).getInt("index"));
+    assertEquals(44, events.get(1).getInt("steps"));
+    assertEquals(45, events.get(2).getInt("index"));
+    assertEquals(45, events.get(2).getInt("steps"));
+    assertEquals(SinglyLinkedList.class.getName(), events.get(2).getClass("listClass").getName());
+  }
+}
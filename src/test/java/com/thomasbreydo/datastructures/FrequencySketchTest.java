@@ -0,0 +1,40 @@
+package com.thomasbreydo.datastructures;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrequencySketchTest {
+  FrequencySketch s;
+
+  @BeforeEach
+  void setUp() {
+    s = new FrequencySketch(512);
+  }
+
+  @Test
+  void frequency() {
+    assertEquals(0, s.frequency(7));
+    s.increment(7);
+    assertEquals(1, s.frequency(7));
+    for (int i = 0; i < 20; ++i) {
+      s.increment(8);
+    }
+    assertEquals(15, s.frequency(8));
+    assertEquals(1, s.frequency(7));
+  }
+
+  @Test
+  void reset() {
+    for (int i = 0; i < 10; ++i) {
+      s.increment(1);
+    }
+    int hot = s.frequency(1);
+    for (int i = 2; i < s.sampleSize; ++i) {
+      s.increment(i);
+    }
+    assertTrue(s.frequency(1) <= hot / 2 + 1);
+    assertThrows(IllegalArgumentException.class, () -> new FrequencySketch(0));
+  }
+}
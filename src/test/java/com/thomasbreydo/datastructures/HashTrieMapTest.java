@@ -0,0 +1,146 @@
+package com.thomasbreydo.datastructures;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashTrieMapTest {
+  HashTrieMap<Integer, Integer> m;
+
+  @BeforeEach
+  void setUp() {
+    m = HashTrieMap.empty();
+  }
+
+  @Test
+  void size() {
+    assertEquals(0, m.size());
+    HashTrieMap<Integer, Integer> one = m.with(3, 6);
+    assertEquals(1, one.size());
+    assertEquals(1, one.with(3, 5).size());
+    assertEquals(0, one.without(3).size());
+    assertEquals(0, m.size());
+  }
+
+  @Test
+  void with() {
+    HashTrieMap<Integer, Integer> a = m.with(1, 2);
+    HashTrieMap<Integer, Integer> b = a.with(1, 3);
+    assertEquals(2, a.get(1));
+    assertEquals(3, b.get(1));
+    assertSame(b, b.with(1, 3));
+    assertNull(m.get(1));
+    HashTrieMap<Integer, Integer> c = b.with(null, null);
+    assertTrue(c.hasKey(null));
+    assertNull(c.get(null));
+    assertFalse(b.hasKey(null));
+  }
+
+  @Test
+  void without() {
+    assertSame(m, m.without(0));
+    HashTrieMap<Integer, Integer> a = m.with(0, 0).with(1, 1);
+    assertSame(a, a.without(2));
+    HashTrieMap<Integer, Integer> b = a.without(0);
+    assertFalse(b.hasKey(0));
+    assertTrue(a.hasKey(0));
+    assertSame(HashTrieMap.empty(), b.without(1));
+  }
+
+  @Test
+  void many() {
+    HashTrieMap<Integer, Integer>[] versions = new HashTrieMap[1001];
+    versions[0] = m;
+    for (int i = 0; i < 1000; ++i) {
+      versions[i + 1] = versions[i].with(i, -i);
+    }
+    for (int v = 0; v <= 1000; v += 100) {
+      assertEquals(v, versions[v].size());
+      for (int i = 0; i < 1000; ++i) {
+        assertEquals(i < v ? -i : null, versions[v].get(i));
+      }
+    }
+    HashTrieMap<Integer, Integer> odd = versions[1000];
+    for (int i = 0; i < 1000; i += 2) {
+      odd = odd.without(i);
+    }
+    assertEquals(500, odd.size());
+    for (int i = 0; i < 1000; ++i) {
+      assertEquals(i % 2 == 1 ? -i : null, odd.get(i));
+      assertEquals(-i, versions[1000].get(i));
+    }
+  }
+
+  @Test
+  void collisions() {
+    HashTrieMap<Collider, Integer> c = HashTrieMap.empty();
+    for (int i = 0; i < 10; ++i) {
+      c = c.with(new Collider(i), i);
+    }
+    c = c.with(new Collider(3), 33);
+    assertEquals(10, c.size());
+    assertEquals(33, c.get(new Collider(3)));
+    HashTrieMap<Collider, Integer> d = c;
+    for (int i = 0; i < 10; ++i) {
+      d = d.without(new Collider(i));
+    }
+    assertEquals(0, d.size());
+    assertEquals(10, c.size());
+    assertEquals(9, c.get(new Collider(9)));
+    HashTrieMap<Object, Integer> mixed = HashTrieMap.empty();
+    mixed = mixed.with(new Collider(0), 0);
+    for (int i = 0; i < 100; ++i) {
+      mixed = mixed.with(i, i);
+    }
+    assertEquals(101, mixed.size());
+    assertEquals(0, mixed.get(new Collider(0)));
+    assertEquals(42, mixed.get(42));
+  }
+
+  @Test
+  void builder() {
+    HashTrieMap.Builder<Integer, Integer> b = HashTrieMap.builder();
+    for (int i = 0; i < 1000; ++i) {
+      b.insert(i, i);
+    }
+    b.insert(5, 50).delete(6).delete(1000);
+    assertEquals(999, b.size());
+    assertEquals(50, b.get(5));
+    HashTrieMap<Integer, Integer> built = b.build();
+    assertThrows(IllegalStateException.class, () -> b.insert(1, 1));
+    assertThrows(IllegalStateException.class, b::build);
+    assertEquals(999, built.size());
+
+    HashTrieMap.Builder<Integer, Integer> more = built.toBuilder();
+    for (int i = 0; i < 1000; ++i) {
+      more.delete(i);
+    }
+    more.insert(-1, -1);
+    HashTrieMap<Integer, Integer> other = more.build();
+    assertEquals(1, other.size());
+    assertEquals(-1, other.get(-1));
+    assertEquals(999, built.size());
+    for (int i = 0; i < 1000; ++i) {
+      assertEquals(i == 5 ? (Integer) 50 : i == 6 ? null : (Integer) i, built.get(i));
+    }
+  }
+
+  static class Collider {
+    final int id;
+
+    Collider(int id) {
+      this.id = id;
+    }
+
+    @Override
+    public int hashCode() {
+      return 42;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Collider && ((Collider) o).id == id;
+    }
+  }
+}
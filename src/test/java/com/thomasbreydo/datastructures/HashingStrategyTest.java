@@ -0,0 +1,115 @@
+package com.thomasbreydo.datastructures;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashingStrategyTest {
+  static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void natural() {
+    HashingStrategy<Object> natural = HashingStrategy.natural();
+    assertEquals("a".hashCode(), natural.hash("a"));
+    assertEquals(0, natural.hash(null));
+    assertTrue(natural.equals(null, null));
+    assertFalse(natural.equals("a", null));
+  }
+
+  @Test
+  void byteArrayKeys() {
+    Map<byte[], Integer> m = new Map<>(HashingStrategy.bytes());
+    for (int i = 0; i < 100; ++i) {
+      m.insert(bytes("key" + i), i);
+    }
+    for (int i = 0; i < 100; ++i) {
+      assertEquals(i, m.get(bytes("key" + i))); // a different array with the same bytes
+    }
+    assertNull(m.get(bytes("key100")));
+    assertTrue(m.delete(bytes("key7")));
+    assertFalse(m.hasKey(bytes("key7")));
+    assertNull(m.insert(null, -1));
+    assertEquals(-1, m.get(null));
+    assertEquals(100, m.size());
+  }
+
+  @Test
+  void byteHashMatchesBuffer() {
+    for (int length = 0; length < 20; ++length) {
+      byte[] b = new byte[length];
+      for (int i = 0; i < length; ++i) {
+        b[i] = (byte) (i * 37 - 100);
+      }
+      assertEquals(Hashing.hash(ByteBuffer.wrap(b), 0, length, Hashing.SEED), Hashing.hash(b));
+    }
+  }
+
+  @Test
+  void charSequenceKeys() {
+    Map<CharSequence, Integer> m = new Map<>(HashingStrategy.charSequences());
+    m.insert("hello world", 1);
+    StringBuilder key = new StringBuilder("hello");
+    assertNull(m.get(key));
+    key.append(" world");
+    assertEquals(1, m.get(key));
+    assertEquals(Hashing.hash("hello world"), m.strategy.hash(key));
+    assertNotEquals(Hashing.hash("hello worle"), Hashing.hash("hello world"));
+  }
+
+  @Test
+  void stringKeys() {
+    assertEquals("hello".hashCode(), HashingStrategy.strings().hash("hello"));
+    assertEquals(0, HashingStrategy.strings().hash(null));
+    Map<String, Integer> m = new Map<>(HashingStrategy.strings());
+    m.insert("Aa", 1);
+    m.insert("BB", 2); // same hash code as "Aa"
+    assertEquals(1, m.get("Aa"));
+    assertEquals(2, m.get(new String("BB")));
+  }
+
+  @Test
+  void set() {
+    Set<String> s = new Set<>(HashingStrategy.strings());
+    assertTrue(s.insert("a"));
+    assertFalse(s.insert(new String("a")));
+    assertTrue(s.contains("a"));
+    assertTrue(s.delete("a"));
+    assertFalse(s.contains("a"));
+  }
+
+  @Test
+  void treeBuckets() {
+    // byte arrays aren't Comparable and all of these collide, so the tree can't order them
+    HashingStrategy<byte[]> colliding =
+        new HashingStrategy<byte[]>() {
+          @Override
+          public int hash(byte[] key) {
+            return 0;
+          }
+
+          @Override
+          public boolean equals(byte[] a, byte[] b) {
+            return HashingStrategy.bytes().equals(a, b);
+          }
+        };
+    Map<byte[], Integer> m = new Map<>(colliding);
+    for (int i = 0; i < 50; ++i) {
+      m.insert(bytes("k" + i), i);
+    }
+    assertTrue(m.bucket(m.hash(bytes("k0"))) instanceof TreeBucket);
+    for (int i = 0; i < 50; ++i) {
+      assertEquals(i, m.get(bytes("k" + i)));
+    }
+    for (int i = 0; i < 50; i += 2) {
+      assertTrue(m.delete(bytes("k" + i)));
+    }
+    for (int i = 0; i < 50; ++i) {
+      assertEquals(i % 2 == 0 ? null : i, m.get(bytes("k" + i)));
+    }
+  }
+}
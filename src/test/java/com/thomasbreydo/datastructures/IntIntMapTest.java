@@ -0,0 +1,84 @@
+package com.thomasbreydo.datastructures;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntIntMapTest {
+  IntIntMap m;
+
+  @BeforeEach
+  void setUp() {
+    m = new IntIntMap();
+  }
+
+  @Test
+  void size() {
+    assertEquals(0, m.size());
+    assertEquals(0, m.insert(3, 6));
+    assertEquals(1, m.size());
+    assertEquals(6, m.insert(3, 5));
+    assertEquals(1, m.size());
+    assertEquals(0, m.insert(0, 7));
+    assertEquals(2, m.size());
+    assertTrue(m.delete(3));
+    assertTrue(m.delete(0));
+    assertEquals(0, m.size());
+  }
+
+  @Test
+  void insert() {
+    m = new IntIntMap(4);
+    assertEquals(4, m.capacity);
+    m.insert(1, 2);
+    m.insert(2, 4);
+    assertEquals(4, m.capacity);
+    m.insert(-3, 6);
+    assertEquals(8, m.capacity);
+    assertEquals(2, m.get(1));
+    assertEquals(4, m.get(2));
+    assertEquals(6, m.get(-3));
+  }
+
+  @Test
+  void get() {
+    assertEquals(0, m.get(0));
+    m = new IntIntMap(16, IntIntMap.DEFAULT_LOAD_FACTOR, -1);
+    assertEquals(-1, m.get(0));
+    assertEquals(-1, m.get(5));
+    m.insert(0, 9);
+    m.insert(5, 10);
+    assertEquals(9, m.get(0));
+    assertEquals(10, m.get(5));
+    assertEquals(-1, m.insert(6, 1));
+  }
+
+  @Test
+  void hasKey() {
+    assertFalse(m.hasKey(0));
+    assertFalse(m.hasKey(9));
+    m.insert(9, 0);
+    assertTrue(m.hasKey(9));
+    assertFalse(m.hasKey(0));
+    m.insert(0, 0);
+    assertTrue(m.hasKey(0));
+  }
+
+  @Test
+  void delete() {
+    assertFalse(m.delete(0));
+    assertFalse(m.delete(1));
+    for (int i = 1; i <= 1000; ++i) {
+      m.insert(i * 64, i);
+    }
+    for (int i = 1; i <= 1000; i += 3) {
+      assertTrue(m.delete(i * 64));
+      assertFalse(m.delete(i * 64));
+    }
+    for (int i = 1; i <= 1000; ++i) {
+      assertEquals(i % 3 == 1 ? 0 : i, m.get(i * 64));
+      assertEquals(i % 3 != 1, m.hasKey(i * 64));
+    }
+  }
+}
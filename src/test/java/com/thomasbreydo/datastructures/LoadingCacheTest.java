@@ -0,0 +1,243 @@
+package com.thomasbreydo.datastructures;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadingCacheTest {
+  /** Runs every task on the calling thread. */
+  static final Executor DIRECT = Runnable::run;
+
+  AtomicInteger loads;
+  LoadingCache<Integer, Integer> c;
+  long now;
+
+  @BeforeEach
+  void setUp() {
+    loads = new AtomicInteger();
+    now = 0;
+    c =
+        new LoadingCache<>(
+            key -> {
+              loads.incrementAndGet();
+              return key * 2;
+            },
+            DIRECT,
+            10,
+            () -> now);
+  }
+
+  @Test
+  void get() {
+    assertEquals(0, c.size());
+    assertEquals(6, c.get(3));
+    assertEquals(6, c.get(3));
+    assertEquals(1, loads.get());
+    assertEquals(1, c.size());
+    assertTrue(c.delete(3));
+    assertFalse(c.delete(3));
+    assertEquals(6, c.get(3));
+    assertEquals(2, loads.get());
+    assertThrows(NullPointerException.class, () -> c.get(null));
+  }
+
+  @Test
+  void insert() {
+    c.insert(1, 5);
+    assertEquals(5, c.get(1));
+    assertEquals(0, loads.get());
+    assertThrows(NullPointerException.class, () -> c.insert(1, null));
+  }
+
+  @Test
+  void nullIsNotCached() {
+    c = new LoadingCache<>(key -> null, DIRECT);
+    assertNull(c.get(1));
+    assertEquals(0, c.size());
+  }
+
+  @Test
+  void failedLoad() {
+    AtomicInteger calls = new AtomicInteger();
+    c =
+        new LoadingCache<>(
+            key -> {
+              if (calls.getAndIncrement() == 0) throw new IllegalStateException();
+              return key;
+            },
+            DIRECT);
+    CompletionException e = assertThrows(CompletionException.class, () -> c.get(1));
+    assertTrue(e.getCause() instanceof IllegalStateException);
+    assertEquals(0, c.size());
+    assertEquals(1, c.get(1));
+  }
+
+  @Test
+  void rejectedLoad() {
+    AtomicBoolean reject = new AtomicBoolean(true);
+    Executor executor =
+        runnable -> {
+          if (reject.get()) throw new RejectedExecutionException();
+          runnable.run();
+        };
+    c = new LoadingCache<>(key -> key * 2, executor, 10, () -> now);
+    assertThrows(RejectedExecutionException.class, () -> c.get(1));
+    assertEquals(0, c.size());
+    Integer[] out = new Integer[2];
+    assertThrows(RejectedExecutionException.class, () -> c.getAll(new Integer[] {2, 3}, out));
+    assertEquals(0, c.size());
+    reject.set(false);
+    assertEquals(2, c.get(1));
+    c.getAll(new Integer[] {2, 3}, out);
+    assertArrayEquals(new Integer[] {4, 6}, out);
+    reject.set(true);
+    now += 10;
+    assertEquals(2, c.get(1)); // the refresh is rejected, but the old value is still served
+    reject.set(false);
+    c.get(1);
+    assertFalse(c.values.get(1).refreshing.get());
+  }
+
+  @Test
+  void refreshExecutorError() {
+    AtomicBoolean fail = new AtomicBoolean(false);
+    c =
+        new LoadingCache<>(
+            key -> key * 2,
+            runnable -> {
+              if (fail.get()) throw new OutOfMemoryError();
+              runnable.run();
+            },
+            10,
+            () -> now);
+    assertEquals(2, c.get(1));
+    fail.set(true);
+    now += 10;
+    assertThrows(OutOfMemoryError.class, () -> c.get(1));
+    assertFalse(c.values.get(1).refreshing.get());
+    fail.set(false);
+    assertEquals(2, c.get(1)); // refreshes again
+    assertEquals(now, c.values.get(1).loadTime);
+  }
+
+  @Test
+  void concurrentMissesLoadOnce() throws InterruptedException {
+    CountDownLatch release = new CountDownLatch(1);
+    c =
+        new LoadingCache<>(
+            key -> {
+              loads.incrementAndGet();
+              release.await();
+              return key + 1;
+            },
+            runnable -> new Thread(runnable).start());
+    int threads = 8;
+    List<Thread> waiters = new ArrayList<>();
+    List<Integer> results = new ArrayList<>();
+    for (int t = 0; t < threads; ++t) {
+      Thread waiter =
+          new Thread(
+              () -> {
+                Integer v = c.get(7);
+                synchronized (results) {
+                  results.add(v);
+                }
+              });
+      waiters.add(waiter);
+      waiter.start();
+    }
+    while (loads.get() == 0) {
+      Thread.sleep(1);
+    }
+    release.countDown();
+    for (Thread waiter : waiters) {
+      waiter.join();
+    }
+    assertEquals(1, loads.get());
+    assertEquals(threads, results.size());
+    for (Integer v : results) {
+      assertEquals(8, v);
+    }
+  }
+
+  @Test
+  void getAll() {
+    List<Integer> batches = new ArrayList<>();
+    c =
+        new LoadingCache<>(
+            new LoadingCache.Loader<Integer, Integer>() {
+              @Override
+              public Integer load(Integer key) {
+                throw new AssertionError();
+              }
+
+              @Override
+              public void loadAll(Integer[] keys, Integer[] out) {
+                batches.add(keys.length);
+                for (int i = 0; i < keys.length; ++i) {
+                  out[i] = -keys[i];
+                }
+              }
+            },
+            DIRECT);
+    c.insert(2, 20);
+    Integer[] out = new Integer[3];
+    c.getAll(new Integer[] {1, 2, 3}, out);
+    assertArrayEquals(new Integer[] {-1, 20, -3}, out);
+    assertEquals(1, batches.size());
+    assertEquals(2, batches.get(0));
+    c.getAll(new Integer[] {3, 1}, out);
+    assertEquals(1, batches.size());
+    assertEquals(-3, out[0]);
+    assertEquals(-1, out[1]);
+    assertThrows(IllegalArgumentException.class, () -> c.getAll(new Integer[2], new Integer[1]));
+  }
+
+  @Test
+  void refreshAfterWrite() {
+    List<Runnable> tasks = new ArrayList<>();
+    AtomicInteger version = new AtomicInteger();
+    c =
+        new LoadingCache<>(
+            key -> version.incrementAndGet(),
+            runnable -> {
+              if (version.get() == 0) runnable.run();
+              else tasks.add(runnable);
+            },
+            10,
+            () -> now);
+    assertEquals(1, c.get(1));
+    now += 9;
+    assertEquals(1, c.get(1));
+    assertTrue(tasks.isEmpty());
+    now += 1;
+    assertEquals(1, c.get(1)); // stale, but served while the refresh runs
+    assertEquals(1, c.get(1));
+    assertEquals(1, tasks.size()); // only one refresh at a time
+    tasks.remove(0).run();
+    assertEquals(2, c.get(1));
+    assertTrue(tasks.isEmpty());
+  }
+
+  @Test
+  void refreshDoesNotOverwriteInsert() {
+    List<Runnable> tasks = new ArrayList<>();
+    c = new LoadingCache<>(key -> 100, tasks::add, 10, () -> now);
+    c.insert(1, 1);
+    now += 10;
+    assertEquals(1, c.get(1));
+    c.insert(1, 2);
+    tasks.remove(0).run();
+    assertEquals(2, c.get(1));
+  }
+}
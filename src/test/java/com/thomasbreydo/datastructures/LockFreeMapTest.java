@@ -0,0 +1,116 @@
+package com.thomasbreydo.datastructures;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LockFreeMapTest {
+  LockFreeMap<Integer, Integer> m;
+
+  @BeforeEach
+  void setUp() {
+    m = new LockFreeMap<>();
+  }
+
+  @Test
+  void size() {
+    assertEquals(0, m.size());
+    assertNull(m.insert(3, 6));
+    assertEquals(1, m.size());
+    assertEquals(6, m.insert(3, 5));
+    assertEquals(1, m.size());
+    assertTrue(m.delete(3));
+    assertEquals(0, m.size());
+  }
+
+  @Test
+  void insert() {
+    m = new LockFreeMap<>(2);
+    assertEquals(2, m.capacity());
+    for (int i = 0; i < 1000; ++i) {
+      assertNull(m.insert(i, i));
+    }
+    assertTrue(m.capacity() >= 1024);
+    for (int i = 0; i < 1000; ++i) {
+      assertEquals(i, m.get(i));
+    }
+    assertThrows(NullPointerException.class, () -> m.insert(1, null));
+    assertThrows(NullPointerException.class, () -> m.insert(null, 1));
+  }
+
+  @Test
+  void growingDoesNotMoveEntries() {
+    m.insert(42, 1);
+    LockFreeMap.Node<Integer, Integer> node = m.getNode(42);
+    for (int i = 0; i < 10000; ++i) {
+      m.insert(i + 100, i);
+    }
+    assertTrue(m.capacity() > LockFreeMap.DEFAULT_CAPACITY);
+    assertSame(node, m.getNode(42));
+  }
+
+  @Test
+  void hasKey() {
+    assertFalse(m.hasKey(9));
+    m.insert(9, 5);
+    assertTrue(m.hasKey(9));
+    assertFalse(m.hasKey(10));
+  }
+
+  @Test
+  void delete() {
+    assertFalse(m.delete(0));
+    for (int i = 0; i < 100; ++i) {
+      m.insert(i, i);
+    }
+    for (int i = 0; i < 100; i += 2) {
+      assertTrue(m.delete(i));
+      assertFalse(m.delete(i));
+    }
+    assertEquals(50, m.size());
+    for (int i = 0; i < 100; ++i) {
+      assertEquals(i % 2 == 0 ? null : i, m.get(i));
+    }
+  }
+
+  @Test
+  void concurrentInserts() throws InterruptedException {
+    m = new LockFreeMap<>(2);
+    int threads = 8;
+    int perThread = 20000;
+    List<Thread> workers = new ArrayList<>();
+    List<Throwable> errors = new ArrayList<>();
+    for (int t = 0; t < threads; ++t) {
+      int offset = t * perThread;
+      Thread worker =
+          new Thread(
+              () -> {
+                for (int i = offset; i < offset + perThread; ++i) {
+                  m.insert(i, i);
+                  if (!Integer.valueOf(i).equals(m.get(i))) {
+                    synchronized (errors) {
+                      errors.add(new AssertionError("lost " + i));
+                    }
+                  }
+                  if (i % 3 == 0) m.delete(i);
+                }
+              });
+      workers.add(worker);
+      worker.start();
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    assertTrue(errors.isEmpty(), errors.toString());
+    int expected = 0;
+    for (int i = 0; i < threads * perThread; ++i) {
+      assertEquals(i % 3 == 0 ? null : i, m.get(i));
+      if (i % 3 != 0) ++expected;
+    }
+    assertEquals(expected, m.size());
+  }
+}
@@ -0,0 +1,62 @@
+package com.thomasbreydo.datastructures;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongObjectMapTest {
+  LongObjectMap<String> m;
+
+  @BeforeEach
+  void setUp() {
+    m = new LongObjectMap<>();
+  }
+
+  @Test
+  void size() {
+    assertEquals(0, m.size());
+    assertNull(m.insert(3, "a"));
+    assertEquals(1, m.size());
+    assertEquals("a", m.insert(3, "b"));
+    assertEquals(1, m.size());
+    assertNull(m.insert(0, "c"));
+    assertEquals(2, m.size());
+    assertTrue(m.delete(0));
+    assertEquals(1, m.size());
+  }
+
+  @Test
+  void get() {
+    assertNull(m.get(0));
+    assertNull(m.get(Long.MIN_VALUE));
+    m.insert(Long.MIN_VALUE, "min");
+    m.insert(Long.MAX_VALUE, "max");
+    m.insert(0, "zero");
+    assertEquals("min", m.get(Long.MIN_VALUE));
+    assertEquals("max", m.get(Long.MAX_VALUE));
+    assertEquals("zero", m.get(0));
+  }
+
+  @Test
+  void hasKey() {
+    assertFalse(m.hasKey(1L << 40));
+    m.insert(1L << 40, null);
+    assertTrue(m.hasKey(1L << 40));
+    assertFalse(m.hasKey(1L << 41));
+  }
+
+  @Test
+  void delete() {
+    for (long i = 1; i <= 1000; ++i) {
+      m.insert(i << 32, String.valueOf(i));
+    }
+    for (long i = 1; i <= 1000; i += 2) {
+      assertTrue(m.delete(i << 32));
+    }
+    assertEquals(500, m.size());
+    for (long i = 1; i <= 1000; ++i) {
+      assertEquals(i % 2 == 1 ? null : String.valueOf(i), m.get(i << 32));
+    }
+  }
+}
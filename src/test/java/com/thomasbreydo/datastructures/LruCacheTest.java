@@ -0,0 +1,86 @@
+package com.thomasbreydo.datastructures;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LruCacheTest {
+  LruCache<Integer, Integer> c;
+  DoublyLinkedList<Integer> evicted;
+
+  @BeforeEach
+  void setUp() {
+    evicted = new DoublyLinkedList<>();
+    c = new LruCache<>(3, (k, v) -> evicted.add(k));
+  }
+
+  @Test
+  void size() {
+    assertEquals(0, c.size());
+    assertNull(c.insert(3, 6));
+    assertEquals(1, c.size());
+    assertEquals(6, c.insert(3, 5));
+    assertEquals(1, c.size());
+    assertTrue(c.delete(3));
+    assertFalse(c.delete(3));
+    assertEquals(0, c.size());
+    assertThrows(IllegalArgumentException.class, () -> new LruCache<>(0));
+  }
+
+  @Test
+  void evictsLeastRecentlyUsed() {
+    c.insert(1, 1);
+    c.insert(2, 2);
+    c.insert(3, 3);
+    assertEquals(1, c.get(1)); // 1, 3, 2
+    c.insert(4, 4); // evicts 2
+    assertEquals("[2]", evicted.toString());
+    assertFalse(c.hasKey(2));
+    c.insert(3, 30); // 3, 4, 1
+    c.insert(5, 5); // evicts 1
+    assertEquals("[2, 1]", evicted.toString());
+    assertEquals(3, c.size());
+    assertEquals(30, c.get(3));
+    assertEquals(4, c.get(4));
+    assertEquals(5, c.get(5));
+    assertNull(c.get(1));
+  }
+
+  @Test
+  void hasKeyDoesNotTouch() {
+    c.insert(1, 1);
+    c.insert(2, 2);
+    c.insert(3, 3);
+    assertTrue(c.hasKey(1));
+    c.insert(4, 4);
+    assertEquals("[1]", evicted.toString());
+  }
+
+  @Test
+  void deleteIsNotEviction() {
+    c.insert(1, 1);
+    c.insert(2, 2);
+    assertTrue(c.delete(2));
+    assertEquals(0, evicted.size());
+    c.insert(3, 3);
+    c.insert(4, 4);
+    assertEquals(0, evicted.size());
+    c.insert(5, 5);
+    assertEquals("[1]", evicted.toString());
+  }
+
+  @Test
+  void many() {
+    LruCache<Integer, Integer> big = new LruCache<>(1000);
+    big.insert(-1, -1);
+    for (int i = 0; i < 100000; ++i) {
+      big.insert(i, i);
+      assertEquals(-1, big.get(-1)); // stays hot, so it is never evicted
+    }
+    assertEquals(1000, big.size());
+    assertEquals(99999, big.get(99999));
+    assertEquals(99001, big.get(99001));
+    assertNull(big.get(99000));
+  }
+}
@@ -0,0 +1,122 @@
+package com.thomasbreydo.datastructures;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MapStatsTest {
+  Map<Integer, Integer> m;
+
+  @BeforeEach
+  void setUp() {
+    m = new Map<>(4, 0.75);
+  }
+
+  @Test
+  void disabledByDefault() {
+    assertNull(m.stats);
+    m.insert(1, 1);
+    MapStats stats = m.enableStats();
+    assertSame(stats, m.enableStats());
+    assertEquals(0, stats.getHits() + stats.getMisses());
+    m.disableStats();
+    m.get(1);
+    assertEquals(0, stats.getHits());
+  }
+
+  @Test
+  void lookups() {
+    m = new Map<>(4, 0.75, new MapTest.Modulo(4));
+    MapStats stats = m.enableStats();
+    m.insert(0, 0); // a miss on an empty bucket
+    m.insert(4, 4); // a miss after comparing with 0
+    assertEquals(0, m.get(0));
+    assertEquals(4, m.get(4));
+    assertNull(m.get(8));
+    assertEquals(2, stats.getHits());
+    assertEquals(3, stats.getMisses());
+    assertEquals(2, stats.getMaxProbeLength());
+    assertEquals((0 + 1 + 1 + 2 + 2) / 5.0, stats.getAverageProbeLength(), 1e-9);
+    stats.reset();
+    assertEquals(0, stats.getHits());
+    assertEquals(0, stats.getAverageProbeLength());
+  }
+
+  @Test
+  void lookupsDuringIncrementalExpand() {
+    m = new Map<>(16, 0.75, 0.1, true, new MapTest.Modulo(4));
+    m.insert(0, 0);
+    m.insert(4, 4);
+    m.expand(32);
+    MapStats stats = m.enableStats();
+    assertNull(m.getEntry(8)); // nothing in the new bucket, then 0 and 4 in the old one
+    assertEquals(4, m.getEntry(4).value);
+    assertEquals(1, stats.getHits());
+    assertEquals(1, stats.getMisses());
+    assertEquals(2, stats.getMaxProbeLength());
+    assertEquals(2.0, stats.getAverageProbeLength(), 1e-9);
+  }
+
+  @Test
+  void batchLookups() {
+    m = new Map<>(16, 0.75, new MapTest.Modulo(16));
+    m.insert(0, 0);
+    m.insert(16, 16);
+    MapStats stats = m.enableStats();
+    Integer[] out = new Integer[3];
+    m.getAll(new Integer[] {0, 16, 1}, out);
+    assertArrayEquals(new Integer[] {0, 16, null}, out);
+    assertEquals(2, stats.getHits());
+    assertEquals(1, stats.getMisses());
+    assertEquals((1 + 2 + 0) / 3.0, stats.getAverageProbeLength(), 1e-9);
+    m.insertAll(new Integer[] {0, 32}, new Integer[] {1, 32});
+    assertEquals(3, stats.getHits());
+    assertEquals(2, stats.getMisses());
+    assertEquals(1, m.get(0));
+  }
+
+  @Test
+  void expands() {
+    MapStats stats = m.enableStats();
+    for (int i = 0; i < 10; ++i) {
+      m.insert(i, i);
+    }
+    assertEquals(2, stats.getExpandCount());
+    assertTrue(stats.getExpandNanos() > 0);
+    assertEquals(10, stats.getMisses()); // moving entries during expand isn't counted
+  }
+
+  @Test
+  void bucketLengths() {
+    m = new Map<>(16, 0.75, new MapTest.Modulo(16));
+    MapStats stats = m.enableStats();
+    m.insert(0, 0);
+    m.insert(16, 16);
+    m.insert(1, 1);
+    assertArrayEquals(new long[] {14, 1, 1}, stats.getBucketLengths());
+    MapStats.Snapshot snapshot = stats.snapshot();
+    m.delete(16);
+    m.get(0);
+    assertArrayEquals(new long[] {14, 1, 1}, snapshot.getBucketLengths());
+    assertEquals(0, snapshot.getHits());
+    assertArrayEquals(new long[] {14, 2}, stats.getBucketLengths());
+  }
+
+  @Test
+  void jmx() throws JMException {
+    MapStats stats = m.enableStats();
+    m.get(1);
+    ObjectName name = stats.register("MapStatsTest");
+    try {
+      assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Misses"));
+    } finally {
+      MapStats.unregister(name);
+    }
+    assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+  }
+}
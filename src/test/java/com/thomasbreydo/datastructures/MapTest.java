@@ -3,6 +3,11 @@ package com.thomasbreydo.datastructures;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.LongAdder;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class MapTest {
@@ -13,11 +18,16 @@ class MapTest {
     m = new Map<>();
   }
 
+  /** For functions that must not be called. */
+  static <T> T unreachable() {
+    throw new AssertionError();
+  }
+
   @Test
   void expand() {
     assertEquals(Map.DEFAULT_CAPACITY, m.capacity);
     m.expand(20);
-    assertEquals(20, m.capacity);
+    assertEquals(32, m.capacity); // rounded up to a power of two
   }
 
   @Test
@@ -79,4 +89,478 @@ class MapTest {
     assertTrue(m.delete(0));
     assertEquals(0, m.size);
   }
+
+  @Test
+  void shrink() {
+    for (int i = 0; i < 1000; ++i) {
+      m.insert(i, i);
+    }
+    assertEquals(2048, m.capacity);
+    for (int i = 0; i < 616; ++i) {
+      assertTrue(m.delete(i));
+    }
+    assertEquals(2048, m.capacity); // 384 / 2048 is not below 0.75 / 4 yet
+    assertTrue(m.delete(616));
+    assertEquals(1024, m.capacity);
+    assertTrue(m.delete(617));
+    assertEquals(1024, m.capacity); // doesn't shrink again right away
+    for (int i = 618; i < 1000; ++i) {
+      assertTrue(m.delete(i));
+    }
+    assertEquals(Map.DEFAULT_CAPACITY, m.capacity);
+    assertEquals(0, m.size());
+
+    m = new Map<>(4, 0.75, 0, false);
+    for (int i = 0; i < 100; ++i) {
+      m.insert(i, i);
+    }
+    for (int i = 0; i < 100; ++i) {
+      m.delete(i);
+    }
+    assertEquals(256, m.capacity);
+    assertThrows(IllegalArgumentException.class, () -> new Map<>(4, 0.75, 0.5, false));
+  }
+
+  @Test
+  void trimToSize() {
+    m = new Map<>(1024, Map.DEFAULT_LOAD_FACTOR, true);
+    for (int i = 0; i < 30; ++i) {
+      m.insert(i, i);
+    }
+    m.trimToSize();
+    assertEquals(64, m.capacity);
+    assertNull(m.oldBuckets);
+    for (int i = 0; i < 30; ++i) {
+      assertEquals(i, m.get(i));
+    }
+    m.trimToSize();
+    assertEquals(64, m.capacity);
+    m = new Map<>();
+    m.trimToSize();
+    assertEquals(1, m.capacity);
+    m.insert(1, 1);
+    assertEquals(1, m.get(1));
+  }
+
+  @Test
+  void putIfAbsent() {
+    assertNull(m.putIfAbsent(1, 2));
+    assertEquals(2, m.putIfAbsent(1, 3));
+    assertEquals(2, m.get(1));
+    assertNull(m.putIfAbsent(2, null));
+    assertNull(m.putIfAbsent(2, 4)); // present with a null value
+    assertNull(m.get(2));
+    assertEquals(2, m.size());
+  }
+
+  @Test
+  void computeIfAbsent() {
+    assertEquals(10, m.computeIfAbsent(5, k -> k * 2));
+    assertEquals(10, m.computeIfAbsent(5, k -> unreachable()));
+    assertNull(m.computeIfAbsent(6, k -> null));
+    assertFalse(m.hasKey(6));
+    assertEquals(1, m.size());
+  }
+
+  @Test
+  void computeIfPresent() {
+    assertNull(m.computeIfPresent(1, (k, v) -> unreachable()));
+    assertFalse(m.hasKey(1));
+    m.insert(1, 5);
+    assertEquals(6, m.computeIfPresent(1, (k, v) -> k + v));
+    assertEquals(6, m.get(1));
+    assertNull(m.computeIfPresent(1, (k, v) -> null));
+    assertFalse(m.hasKey(1));
+    assertEquals(0, m.size());
+  }
+
+  @Test
+  void compute() {
+    assertEquals(1, m.compute(1, (k, v) -> v == null ? 1 : v + 1));
+    assertEquals(2, m.compute(1, (k, v) -> v == null ? 1 : v + 1));
+    assertEquals(2, m.get(1));
+    assertNull(m.compute(1, (k, v) -> null));
+    assertFalse(m.hasKey(1));
+    assertNull(m.compute(2, (k, v) -> null));
+    assertEquals(0, m.size());
+  }
+
+  @Test
+  void merge() {
+    m = new Map<>(2, Map.DEFAULT_LOAD_FACTOR, true);
+    for (int i = 0; i < 1000; ++i) {
+      m.merge(i % 100, 1, Integer::sum);
+    }
+    assertEquals(100, m.size());
+    for (int i = 0; i < 100; ++i) {
+      assertEquals(10, m.get(i));
+    }
+    assertNull(m.merge(0, 1, (a, b) -> null));
+    assertFalse(m.hasKey(0));
+    assertEquals(99, m.size());
+    assertThrows(NullPointerException.class, () -> m.merge(1, null, Integer::sum));
+  }
+
+  @Test
+  void views() {
+    m = new Map<>(16, Map.DEFAULT_LOAD_FACTOR, true);
+    for (int i = 0; i < 13; ++i) {
+      m.insert(i, -i);
+    }
+    assertNotNull(m.oldBuckets); // entries are split between the old and new buckets
+    assertEquals(78, m.keys().stream().mapToInt(Integer::intValue).sum());
+    assertEquals(-78, m.values().parallelStream().mapToInt(Integer::intValue).sum());
+    int count = 0;
+    for (Map.Entry<Integer, Integer> entry : m.entries()) {
+      assertEquals(-entry.key, entry.value);
+      ++count;
+    }
+    assertEquals(13, count);
+    assertEquals(13, m.keys().size());
+
+    Map<Collider, Integer> colliders = new Map<>();
+    for (int i = 0; i < 20; ++i) {
+      colliders.insert(new Collider(i), i);
+    }
+    assertEquals(190, colliders.values().stream().mapToInt(Integer::intValue).sum());
+  }
+
+  @Test
+  void spliterator() {
+    for (int i = 0; i < 1000; ++i) {
+      m.insert(i, i);
+    }
+    Spliterator<Integer> root = m.keys().spliterator();
+    assertTrue(root.hasCharacteristics(Spliterator.DISTINCT));
+    assertEquals(1000, root.estimateSize());
+    List<Spliterator<Integer>> pieces = new ArrayList<>();
+    pieces.add(root);
+    for (int i = 0; i < pieces.size(); ++i) {
+      Spliterator<Integer> prefix = pieces.get(i).trySplit();
+      if (prefix != null) {
+        pieces.add(prefix);
+        --i;
+      }
+    }
+    assertEquals(m.capacity, pieces.size()); // split down to one bucket each
+    long[] sum = {0};
+    for (Spliterator<Integer> piece : pieces) {
+      piece.tryAdvance(k -> sum[0] += k);
+      piece.forEachRemaining(k -> sum[0] += k);
+      assertFalse(piece.tryAdvance(k -> sum[0] = -1));
+    }
+    assertEquals(499500, sum[0]);
+  }
+
+  @Test
+  void bulkOperations() {
+    for (int i = 1; i <= 10000; ++i) {
+      m.insert(i, i % 7);
+    }
+    LongAdder sum = new LongAdder();
+    m.forEach(1, (k, v) -> sum.add(k));
+    assertEquals(50005000, sum.sum());
+    sum.reset();
+    m.forEach(Long.MAX_VALUE, (k, v) -> sum.add(v));
+    assertEquals(m.values().stream().mapToLong(Integer::longValue).sum(), sum.sum());
+    assertEquals(10000, m.<Integer>reduce(1, (k, v) -> k, Math::max));
+    assertNull(m.<Integer>reduce(1, (k, v) -> null, Math::max));
+    assertEquals(50005000, m.reduceToLong(1, (k, v) -> k, 0, Long::sum));
+    assertEquals(10000, m.reduceToLong(1, (k, v) -> 1, 0, Long::sum));
+    assertEquals(4242, m.<Integer>search(1, (k, v) -> k == 4242 ? k : null));
+    assertNull(m.<Integer>search(1, (k, v) -> k < 0 ? k : null));
+    assertEquals(0, new Map<Integer, Integer>().reduceToLong(1, (k, v) -> k, 0, Long::sum));
+  }
+
+  @Test
+  void incrementalExpand() {
+    m = new Map<>(16, Map.DEFAULT_LOAD_FACTOR, true);
+    for (int i = 0; i < 13; ++i) {
+      m.insert(i, i);
+    }
+    assertEquals(32, m.capacity);
+    assertNotNull(m.oldBuckets);
+    assertEquals(13, m.size());
+    for (int i = 0; i < 13; ++i) {
+      assertEquals(i, m.get(i));
+    }
+    assertNull(m.oldBuckets);
+    for (int i = 13; i < 1000; ++i) {
+      m.insert(i, i);
+      assertEquals(i + 1, m.size());
+    }
+    assertTrue(m.delete(500));
+    assertFalse(m.hasKey(500));
+    for (int i = 0; i < 1000; ++i) {
+      assertEquals(i == 500 ? null : i, m.get(i));
+    }
+    m.expand(4096);
+    assertNotNull(m.oldBuckets);
+    m.expand(8192);
+    assertTrue(m.delete(999));
+    assertEquals(998, m.size());
+    assertEquals(998, m.get(998));
+  }
+
+  @Test
+  void lazyBuckets() {
+    m = new Map<>(1 << 16);
+    for (Iterable<Map.Entry<Integer, Integer>> bucket : m.buckets) {
+      assertNull(bucket);
+    }
+    m.insert(5, 5);
+    m.insert(6, 6);
+    int created = 0;
+    for (Iterable<Map.Entry<Integer, Integer>> bucket : m.buckets) {
+      if (bucket != null) ++created;
+    }
+    assertEquals(2, created);
+    m.expand(1 << 17);
+    assertEquals(5, m.get(5));
+    assertTrue(m.delete(5));
+    assertTrue(m.delete(6));
+    for (Iterable<Map.Entry<Integer, Integer>> bucket : m.buckets) {
+      assertNull(bucket);
+    }
+  }
+
+  @Test
+  void getAll() {
+    for (int i = 0; i < 100; i += 2) {
+      m.insert(i, -i);
+    }
+    Integer[] keys = new Integer[50];
+    for (int i = 0; i < keys.length; ++i) {
+      keys[i] = keys.length - i;
+    }
+    Integer[] out = new Integer[keys.length];
+    m.getAll(keys, out);
+    for (int i = 0; i < keys.length; ++i) {
+      assertEquals(keys[i] % 2 == 0 ? -keys[i] : null, out[i]);
+    }
+    assertThrows(IllegalArgumentException.class, () -> m.getAll(keys, new Integer[1]));
+  }
+
+  @Test
+  void insertAll() {
+    int[] expands = {0};
+    m =
+        new Map<Integer, Integer>(16, 0.75, true) {
+          @Override
+          void expand(int newCapacity) {
+            ++expands[0];
+            super.expand(newCapacity);
+          }
+        };
+    m.insert(-1, 1);
+    Integer[] keys = new Integer[1000];
+    Integer[] values = new Integer[keys.length];
+    for (int i = 0; i < keys.length; ++i) {
+      keys[i] = i % 500;
+      values[i] = i;
+    }
+    m.insertAll(keys, values);
+    assertEquals(1, expands[0]);
+    assertEquals(2048, m.capacity);
+    assertEquals(501, m.size());
+    for (int i = 0; i < 500; ++i) {
+      assertEquals(i + 500, m.get(i));
+    }
+    assertEquals(1, m.get(-1));
+    assertThrows(IllegalArgumentException.class, () -> m.insertAll(keys, new Integer[1]));
+  }
+
+  @Test
+  void treeBuckets() {
+    Map<Collider, Integer> c = new Map<>(1 << 10);
+    for (int i = 0; i < 100; ++i) {
+      c.insert(new Collider(i), i);
+    }
+    assertTrue(c.bucket(c.hash(new Collider(0))) instanceof TreeBucket);
+    assertEquals(100, c.size());
+    assertEquals(7, c.insert(new Collider(7), -7));
+    for (int i = 0; i < 100; ++i) {
+      assertEquals(i == 7 ? -7 : i, c.get(new Collider(i)));
+    }
+    assertFalse(c.hasKey(new Collider(100)));
+    for (int i = 0; i < 95; ++i) {
+      assertTrue(c.delete(new Collider(i)));
+      assertFalse(c.delete(new Collider(i)));
+    }
+    assertTrue(c.bucket(c.hash(new Collider(0))) instanceof DoublyLinkedList);
+    for (int i = 95; i < 100; ++i) {
+      assertEquals(i, c.get(new Collider(i)));
+    }
+  }
+
+  @Test
+  void treeBucketsWithoutOrder() {
+    Map<Object, Integer> c = new Map<>(1 << 10);
+    Object[] keys = new Object[50];
+    for (int i = 0; i < keys.length; ++i) {
+      keys[i] = i % 2 == 0 ? new Collider(i) : new UnorderedCollider(i);
+      c.insert(keys[i], i);
+    }
+    for (int i = 0; i < keys.length; ++i) {
+      assertEquals(i, c.get(keys[i]));
+    }
+    assertFalse(c.hasKey(new UnorderedCollider(51)));
+    for (int i = 0; i < keys.length; i += 3) {
+      assertTrue(c.delete(keys[i]));
+    }
+    for (int i = 0; i < keys.length; ++i) {
+      assertEquals(i % 3 == 0 ? null : i, c.get(keys[i]));
+    }
+  }
+
+  @Test
+  void treeBucketsWithStrings() {
+    // "Aa" and "BB" have the same hash code, and so does every string made of them
+    List<String> keys = new ArrayList<>(List.of(""));
+    for (int n = 0; n < 7; ++n) {
+      List<String> longer = new ArrayList<>();
+      for (String key : keys) {
+        longer.add(key + "Aa");
+        longer.add(key + "BB");
+      }
+      keys = longer;
+    }
+    Map<String, Integer> c = new Map<>(HashingStrategy.strings());
+    for (int i = 0; i < keys.size(); ++i) {
+      c.insert(keys.get(i), i);
+    }
+    Iterable<Map.Entry<String, Integer>> bucket = c.bucket(c.hash(keys.get(0)));
+    assertTrue(bucket instanceof TreeBucket);
+    assertTrue(((TreeBucket<String, Integer>) bucket).ordered);
+    for (int i = 0; i < keys.size(); ++i) {
+      assertEquals(i, c.get(keys.get(i)));
+    }
+    assertFalse(c.hasKey("AaAaAaAaAaAaAaBB" + "Aa"));
+  }
+
+  @Test
+  void cachedHashes() {
+    Map<Counted, Integer> c = new Map<>(16, 0.75, false);
+    Counted[] keys = new Counted[1000];
+    for (int i = 0; i < keys.length; ++i) {
+      keys[i] = new Counted(i);
+      c.insert(keys[i], i);
+    }
+    for (Counted key : keys) {
+      assertEquals(1, key.hashes);
+      assertEquals(key.id, c.get(key));
+    }
+    c.expand(1 << 14);
+    c.trimToSize();
+    // only the get above hashed the keys again
+    for (Counted key : keys) {
+      assertEquals(2, key.hashes);
+      assertEquals(key.id, c.get(key));
+    }
+  }
+
+  @Test
+  void movedBuckets() {
+    for (boolean incremental : new boolean[] {false, true}) {
+      Map<Integer, Integer> c = new Map<>(16, 0.75, 0.1, incremental, new Modulo(4));
+      for (int i = 0; i < 1000; ++i) {
+        c.insert(i, i);
+      }
+      c.finishRehash();
+      assertEquals(1000, c.size());
+      for (int i = 0; i < 1000; ++i) {
+        assertEquals(i, c.get(i));
+      }
+      for (int i = 0; i < 1000; i += 2) {
+        assertTrue(c.delete(i));
+      }
+      c.trimToSize();
+      for (int i = 0; i < 1000; ++i) {
+        assertEquals(i % 2 == 0 ? null : i, c.get(i));
+      }
+    }
+  }
+
+  /** Hashes an integer key to the key modulo {@code n}, so that tests can make keys collide. */
+  static final class Modulo implements HashingStrategy<Integer> {
+    final int n;
+
+    Modulo(int n) {
+      this.n = n;
+    }
+
+    @Override
+    public int hash(Integer key) {
+      return key % n;
+    }
+
+    @Override
+    public boolean equals(Integer a, Integer b) {
+      return a.equals(b);
+    }
+  }
+
+  /** Key whose instances all have the same hash code. */
+  static class Collider implements Comparable<Collider> {
+    final int id;
+
+    Collider(int id) {
+      this.id = id;
+    }
+
+    @Override
+    public int compareTo(Collider o) {
+      return Integer.compare(id, o.id);
+    }
+
+    @Override
+    public int hashCode() {
+      return 42;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Collider && ((Collider) o).id == id;
+    }
+  }
+
+  /** Key that counts how many times it was hashed. */
+  static class Counted {
+    final int id;
+    int hashes;
+
+    Counted(int id) {
+      this.id = id;
+    }
+
+    @Override
+    public int hashCode() {
+      ++hashes;
+      return id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Counted && ((Counted) o).id == id;
+    }
+  }
+
+  /** Like {@link Collider}, but not {@link Comparable}. */
+  static class UnorderedCollider {
+    final int id;
+
+    UnorderedCollider(int id) {
+      this.id = id;
+    }
+
+    @Override
+    public int hashCode() {
+      return 42;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof UnorderedCollider && ((UnorderedCollider) o).id == id;
+    }
+  }
 }
@@ -0,0 +1,108 @@
+package com.thomasbreydo.datastructures;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedMapTest {
+  @TempDir Path dir;
+  Path file;
+
+  @BeforeEach
+  void setUp() {
+    file = dir.resolve("map");
+  }
+
+  MappedMap<Long, Integer> open() throws IOException {
+    return new MappedMap<>(file, OffHeapMap.Codec.LONG, OffHeapMap.Codec.INT, 4);
+  }
+
+  @Test
+  void test() throws IOException {
+    MappedMap<Long, Integer> m = open();
+    assertEquals(0, m.size());
+    assertNull(m.insert(3L, 6));
+    assertEquals(6, m.insert(3L, 5));
+    assertTrue(m.hasKey(3L));
+    assertTrue(m.delete(3L));
+    assertFalse(m.delete(3L));
+    assertNull(m.get(3L));
+    m.close();
+  }
+
+  @Test
+  void reopen() throws IOException {
+    MappedMap<Long, Integer> m = open();
+    for (long i = 0; i < 1000; ++i) {
+      m.insert(i, (int) i * 2);
+    }
+    m.delete(7L);
+    int capacity = m.capacity;
+    assertTrue(capacity > 4);
+    m.close();
+    assertThrows(IllegalStateException.class, () -> m.get(1L));
+
+    MappedMap<Long, Integer> reopened = open();
+    assertEquals(999, reopened.size());
+    assertEquals(capacity, reopened.capacity);
+    for (long i = 0; i < 1000; ++i) {
+      assertEquals(i == 7 ? null : (int) i * 2, reopened.get(i));
+    }
+    reopened.insert(7L, 0);
+    reopened.close();
+
+    try (MappedMap<Long, Integer> again = open()) {
+      assertEquals(1000, again.size());
+    }
+  }
+
+  @Test
+  void crashDuringExpand() throws IOException {
+    MappedMap<Long, Integer> m =
+        new MappedMap<Long, Integer>(file, OffHeapMap.Codec.LONG, OffHeapMap.Codec.INT, 16) {
+          @Override
+          void moveAll(ByteBuffer[] from, int fromCapacity) {
+            super.moveAll(from, fromCapacity);
+            if (capacity > 64) throw new IllegalStateException("crash");
+          }
+        };
+    for (long i = 0; i < 32; ++i) {
+      m.insert(i, (int) i);
+    }
+    assertEquals(64, m.capacity);
+    assertThrows(IllegalStateException.class, () -> m.insert(32L, 32));
+    assertEquals(64, m.capacity);
+    assertEquals(31, m.get(31L));
+    m.channel.close(); // without flushing, as if the process had died
+
+    try (MappedMap<Long, Integer> reopened = open()) {
+      assertEquals(64, reopened.capacity);
+      assertEquals(32, reopened.size());
+      for (long i = 0; i < 32; ++i) {
+        assertEquals((int) i, reopened.get(i));
+      }
+      for (long i = 32; i < 1000; ++i) {
+        reopened.insert(i, (int) i);
+      }
+      assertTrue(reopened.channel.size() < 2 * reopened.tableBytes(reopened.capacity) + 64);
+    }
+    try (MappedMap<Long, Integer> again = open()) {
+      assertEquals(1000, again.size());
+      assertEquals(999, again.get(999L));
+    }
+  }
+
+  @Test
+  void differentCodecs() throws IOException {
+    open().close();
+    assertThrows(
+        IOException.class,
+        () -> new MappedMap<>(file, OffHeapMap.Codec.INT, OffHeapMap.Codec.INT).close());
+  }
+}
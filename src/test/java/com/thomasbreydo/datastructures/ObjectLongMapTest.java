@@ -0,0 +1,61 @@
+package com.thomasbreydo.datastructures;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ObjectLongMapTest {
+  ObjectLongMap<String> m;
+
+  @BeforeEach
+  void setUp() {
+    m = new ObjectLongMap<>();
+  }
+
+  @Test
+  void size() {
+    assertEquals(0, m.size());
+    assertEquals(0, m.insert("a", 6));
+    assertEquals(1, m.size());
+    assertEquals(6, m.insert("a", 5));
+    assertEquals(1, m.size());
+    assertTrue(m.delete("a"));
+    assertEquals(0, m.size());
+  }
+
+  @Test
+  void get() {
+    m = new ObjectLongMap<>(16, ObjectLongMap.DEFAULT_LOAD_FACTOR, Long.MIN_VALUE);
+    assertEquals(Long.MIN_VALUE, m.get("a"));
+    m.insert("a", 1);
+    m.insert(null, 2);
+    assertEquals(1, m.get("a"));
+    assertEquals(2, m.get(null));
+    assertEquals(1, m.get(new String("a")));
+  }
+
+  @Test
+  void hasKey() {
+    assertFalse(m.hasKey(null));
+    m.insert("b", 0);
+    assertTrue(m.hasKey("b"));
+    assertFalse(m.hasKey(null));
+    m.insert(null, 0);
+    assertTrue(m.hasKey(null));
+  }
+
+  @Test
+  void delete() {
+    for (int i = 0; i < 1000; ++i) {
+      m.insert("k" + i, i);
+    }
+    for (int i = 0; i < 1000; i += 2) {
+      assertTrue(m.delete("k" + i));
+    }
+    assertEquals(500, m.size());
+    for (int i = 0; i < 1000; ++i) {
+      assertEquals(i % 2 == 0 ? 0 : i, m.get("k" + i));
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package com.thomasbreydo.datastructures;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapMapTest {
+  OffHeapMap<Long, Long> m;
+
+  @BeforeEach
+  void setUp() {
+    m = new OffHeapMap<>(OffHeapMap.Codec.LONG, OffHeapMap.Codec.LONG);
+  }
+
+  @AfterEach
+  void tearDown() {
+    m.close();
+  }
+
+  @Test
+  void size() {
+    assertEquals(0, m.size());
+    assertNull(m.insert(3L, 6L));
+    assertEquals(1, m.size());
+    assertEquals(6L, m.insert(3L, 5L));
+    assertEquals(1, m.size());
+    assertTrue(m.delete(3L));
+    assertEquals(0, m.size());
+  }
+
+  @Test
+  void insert() {
+    m = new OffHeapMap<>(OffHeapMap.Codec.LONG, OffHeapMap.Codec.LONG, 4);
+    assertEquals(4, m.capacity);
+    m.insert(1L, 2L);
+    m.insert(2L, 4L);
+    assertEquals(4, m.capacity);
+    m.insert(0L, -1L);
+    assertEquals(8, m.capacity);
+    assertEquals(2L, m.get(1L));
+    assertEquals(4L, m.get(2L));
+    assertEquals(-1L, m.get(0L));
+  }
+
+  @Test
+  void pages() {
+    // 20-byte slots, so every 64-byte page holds 2 of them
+    m = new OffHeapMap<>(OffHeapMap.Codec.LONG, OffHeapMap.Codec.LONG, 2, 0.5, 64);
+    for (long i = 0; i < 1000; ++i) {
+      m.insert(i, i * i);
+    }
+    assertEquals(1000, m.size());
+    assertEquals(m.capacity / 2, m.pages.length);
+    for (long i = 0; i < 1000; i += 2) {
+      assertTrue(m.delete(i));
+    }
+    for (long i = 0; i < 1000; ++i) {
+      assertEquals(i % 2 == 0 ? null : i * i, m.get(i));
+    }
+  }
+
+  @Test
+  void bytes() {
+    OffHeapMap<byte[], Double> b =
+        new OffHeapMap<>(OffHeapMap.Codec.bytes(3), OffHeapMap.Codec.DOUBLE);
+    assertNull(b.insert(new byte[] {1, 2, 3}, 0.5));
+    assertEquals(0.5, b.get(new byte[] {1, 2, 3}));
+    assertTrue(b.hasKey(new byte[] {1, 2, 3}));
+    assertFalse(b.hasKey(new byte[] {1, 2, 4}));
+    assertThrows(IllegalArgumentException.class, () -> b.insert(new byte[] {1}, 0.0));
+    b.close();
+  }
+
+  @Test
+  void badValue() {
+    OffHeapMap<Long, byte[]> b = new OffHeapMap<>(OffHeapMap.Codec.LONG, OffHeapMap.Codec.bytes(3));
+    assertThrows(IllegalArgumentException.class, () -> b.insert(7L, new byte[] {1}));
+    assertEquals(0, b.size());
+    assertFalse(b.hasKey(7L));
+    assertFalse(b.delete(7L));
+    assertEquals(0, b.size());
+    assertNull(b.insert(7L, new byte[] {1, 2, 3}));
+    assertThrows(IllegalArgumentException.class, () -> b.insert(7L, new byte[] {4}));
+    assertArrayEquals(new byte[] {1, 2, 3}, b.get(7L));
+    assertEquals(1, b.size());
+    b.close();
+  }
+
+  @Test
+  void nullValue() {
+    assertThrows(NullPointerException.class, () -> m.insert(7L, null));
+    assertEquals(0, m.size());
+    assertFalse(m.hasKey(7L));
+    assertNull(m.get(7L));
+    assertFalse(m.delete(7L));
+    assertEquals(0, m.size());
+  }
+
+  @Test
+  void delete() {
+    assertFalse(m.delete(0L));
+    m.insert(0L, 0L);
+    assertFalse(m.delete(1L));
+    assertTrue(m.delete(0L));
+    assertFalse(m.hasKey(0L));
+    assertEquals(0, m.size());
+  }
+
+  @Test
+  void close() {
+    m.insert(1L, 1L);
+    m.close();
+    assertThrows(IllegalStateException.class, () -> m.get(1L));
+    assertThrows(IllegalStateException.class, () -> m.insert(1L, 1L));
+  }
+}
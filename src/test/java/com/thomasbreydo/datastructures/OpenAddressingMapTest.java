@@ -0,0 +1,98 @@
+package com.thomasbreydo.datastructures;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenAddressingMapTest {
+  OpenAddressingMap<Integer, Integer> m;
+
+  @BeforeEach
+  void setUp() {
+    m = new OpenAddressingMap<>();
+  }
+
+  @Test
+  void expand() {
+    assertEquals(OpenAddressingMap.DEFAULT_CAPACITY, m.capacity);
+    m.insert(1, 2);
+    m.expand(20);
+    assertEquals(32, m.capacity);
+    assertEquals(2, m.get(1));
+  }
+
+  @Test
+  void size() {
+    assertEquals(0, m.size());
+    assertNull(m.insert(3, 6));
+    assertEquals(1, m.size());
+    assertEquals(6, m.insert(3, 5));
+    assertEquals(1, m.size());
+    assertTrue(m.delete(3));
+    assertEquals(0, m.size());
+  }
+
+  @Test
+  void insert() {
+    m = new OpenAddressingMap<>(4);
+    assertEquals(4, m.capacity);
+    assertNull(m.insert(1, 2));
+    assertNull(m.insert(2, 4));
+    assertEquals(4, m.capacity);
+    assertNull(m.insert(3, null));
+    assertEquals(8, m.capacity);
+    assertEquals(3, m.size);
+    assertThrows(IllegalArgumentException.class, () -> new OpenAddressingMap<>(4, 1));
+  }
+
+  @Test
+  void get() {
+    assertNull(m.get(0));
+    m.insert(0, 5);
+    assertEquals(5, m.get(0));
+    m.insert(1000, 6);
+    assertEquals(6, m.get(1000));
+    m = new OpenAddressingMap<>(99999);
+    assertNull(m.get(0));
+  }
+
+  @Test
+  void hasKey() {
+    assertFalse(m.hasKey(null));
+    assertFalse(m.hasKey(9));
+    m.insert(9, 5);
+    assertTrue(m.hasKey(9));
+    assertFalse(m.hasKey(null));
+    m.insert(null, null);
+    assertTrue(m.hasKey(9));
+    assertTrue(m.hasKey(null));
+  }
+
+  @Test
+  void delete() {
+    assertFalse(m.delete(null));
+    assertFalse(m.delete(0));
+    m.insert(0, null);
+    assertEquals(1, m.size);
+    assertFalse(m.delete(null));
+    assertEquals(1, m.size);
+    assertTrue(m.delete(0));
+    assertEquals(0, m.size);
+  }
+
+  @Test
+  void deleteKeepsProbeSequences() {
+    m = new OpenAddressingMap<>(1024);
+    for (int i = 0; i < 400; ++i) {
+      m.insert(i * 1024, i);
+    }
+    for (int i = 0; i < 400; i += 2) {
+      assertTrue(m.delete(i * 1024));
+    }
+    assertEquals(200, m.size());
+    for (int i = 0; i < 400; ++i) {
+      assertEquals(i % 2 == 0 ? null : i, m.get(i * 1024));
+    }
+  }
+}
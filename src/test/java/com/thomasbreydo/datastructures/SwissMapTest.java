@@ -0,0 +1,139 @@
+package com.thomasbreydo.datastructures;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SwissMapTest {
+  SwissMap<Integer, Integer> m;
+
+  @BeforeEach
+  void setUp() {
+    m = new SwissMap<>();
+  }
+
+  @Test
+  void expand() {
+    assertEquals(SwissMap.DEFAULT_CAPACITY, m.capacity);
+    m.insert(1, 2);
+    m.expand(20);
+    assertEquals(32, m.capacity);
+    assertEquals(2, m.get(1));
+  }
+
+  @Test
+  void size() {
+    assertEquals(0, m.size());
+    assertNull(m.insert(3, 6));
+    assertEquals(1, m.size());
+    assertEquals(6, m.insert(3, 5));
+    assertEquals(1, m.size());
+    assertTrue(m.delete(3));
+    assertEquals(0, m.size());
+  }
+
+  @Test
+  void insert() {
+    assertEquals(16, new SwissMap<>(4).capacity);
+    for (int i = 0; i < 14; ++i) {
+      assertNull(m.insert(i, i));
+    }
+    assertEquals(16, m.capacity);
+    assertNull(m.insert(14, null));
+    assertEquals(32, m.capacity);
+    assertEquals(15, m.size);
+    assertThrows(IllegalArgumentException.class, () -> new SwissMap<>(4, 1));
+  }
+
+  @Test
+  void get() {
+    assertNull(m.get(0));
+    m.insert(0, 5);
+    assertEquals(5, m.get(0));
+    m.insert(1000, 6);
+    assertEquals(6, m.get(1000));
+    m = new SwissMap<>(99999);
+    assertNull(m.get(0));
+  }
+
+  @Test
+  void hasKey() {
+    assertFalse(m.hasKey(null));
+    assertFalse(m.hasKey(9));
+    m.insert(9, 5);
+    assertTrue(m.hasKey(9));
+    assertFalse(m.hasKey(null));
+    m.insert(null, null);
+    assertTrue(m.hasKey(9));
+    assertTrue(m.hasKey(null));
+  }
+
+  @Test
+  void delete() {
+    assertFalse(m.delete(null));
+    assertFalse(m.delete(0));
+    m.insert(0, null);
+    assertEquals(1, m.size);
+    assertFalse(m.delete(null));
+    assertEquals(1, m.size);
+    assertTrue(m.delete(0));
+    assertEquals(0, m.size);
+  }
+
+  @Test
+  void tombstones() {
+    m = new SwissMap<>(1024);
+    for (int round = 0; round < 20; ++round) {
+      for (int i = 0; i < 800; ++i) {
+        m.insert(round * 800 + i, i);
+      }
+      for (int i = 0; i < 800; i += round % 2 == 0 ? 1 : 2) {
+        assertTrue(m.delete(round * 800 + i));
+      }
+    }
+    assertEquals(4000, m.size());
+    assertTrue(m.size + m.tombstones <= m.capacity * m.loadFactor);
+    for (int round = 0; round < 20; ++round) {
+      for (int i = 0; i < 800; ++i) {
+        boolean kept = round % 2 == 1 && i % 2 == 1;
+        assertEquals(kept ? (Integer) i : null, m.get(round * 800 + i));
+      }
+    }
+  }
+
+  @Test
+  void fewEqualsCalls() {
+    SwissMap<Counted, Integer> c = new SwissMap<>(1024);
+    for (int i = 0; i < 896; ++i) {
+      c.insert(new Counted(i), i);
+    }
+    assertEquals(1024, c.capacity);
+    Counted.equalsCalls = 0;
+    for (int i = 896; i < 10896; ++i) {
+      assertFalse(c.hasKey(new Counted(i)));
+    }
+    // a 7-bit fragment matches a full slot with probability 1/128
+    assertTrue(Counted.equalsCalls < 10000 / 4);
+  }
+
+  static class Counted {
+    static int equalsCalls;
+    final int id;
+
+    Counted(int id) {
+      this.id = id;
+    }
+
+    @Override
+    public int hashCode() {
+      return id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      ++equalsCalls;
+      return o instanceof Counted && ((Counted) o).id == id;
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package com.thomasbreydo.datastructures;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+  static final long SECOND = 1_000_000_000L;
+
+  TimingWheel<Task> w;
+  long now;
+
+  @BeforeEach
+  void setUp() {
+    now = 12345;
+    w = new TimingWheel<>(now, task -> task.firedAt = now);
+  }
+
+  @Test
+  void firesOnTime() {
+    long[] delays = {SECOND / 2, 3 * SECOND, 90 * SECOND, 2 * 3600 * SECOND, 9 * 86400 * SECOND};
+    Task[] tasks = new Task[delays.length];
+    for (int i = 0; i < delays.length; ++i) {
+      tasks[i] = new Task();
+      w.schedule(tasks[i], now + delays[i]);
+    }
+    long end = now + 10 * 86400 * SECOND;
+    while (now < end) {
+      now += SECOND / 4;
+      w.advance(now);
+      for (Task task : tasks) {
+        if (task.firedAt == 0) {
+          assertTrue(now - task.time < 2 * TimingWheel.SPANS[0], "late");
+        }
+      }
+    }
+    for (Task task : tasks) {
+      assertTrue(task.firedAt >= task.time);
+      assertTrue(task.firedAt - task.time <= 2 * TimingWheel.SPANS[0]);
+      assertNull(task.bucket);
+    }
+  }
+
+  @Test
+  void cancel() {
+    Task task = new Task();
+    w.schedule(task, now + 5 * SECOND);
+    w.cancel(task);
+    w.advance(now + 10 * SECOND);
+    assertEquals(0, task.firedAt);
+    w.schedule(task, now + 20 * SECOND);
+    w.schedule(task, now + 40 * SECOND); // replaces the first schedule
+    now += 30 * SECOND;
+    w.advance(now);
+    assertEquals(0, task.firedAt);
+    now += 20 * SECOND;
+    w.advance(now);
+    assertEquals(now, task.firedAt);
+  }
+
+  static class Task extends TimingWheel.Timer {
+    long firedAt;
+  }
+}
@@ -0,0 +1,124 @@
+package com.thomasbreydo.datastructures;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TinyLfuCacheTest {
+  TinyLfuCache<Integer, Integer> c;
+
+  @BeforeEach
+  void setUp() {
+    c = new TinyLfuCache<>(100);
+  }
+
+  @Test
+  void size() {
+    assertEquals(0, c.size());
+    assertNull(c.insert(3, 6));
+    assertEquals(1, c.size());
+    assertEquals(6, c.insert(3, 5));
+    assertEquals(1, c.size());
+    assertEquals(5, c.get(3));
+    assertTrue(c.delete(3));
+    assertFalse(c.delete(3));
+    assertEquals(0, c.size());
+    assertThrows(NullPointerException.class, () -> c.insert(1, null));
+    assertThrows(IllegalArgumentException.class, () -> new TinyLfuCache<>(0));
+  }
+
+  @Test
+  void maximumSize() {
+    for (int i = 0; i < 10000; ++i) {
+      c.insert(i, i);
+      assertTrue(c.size() <= 100);
+    }
+    assertEquals(100, c.size());
+    TinyLfuCache<Integer, Integer> one = new TinyLfuCache<>(1);
+    one.insert(1, 1);
+    one.insert(2, 2);
+    assertEquals(1, one.size());
+    assertEquals(2, one.get(2));
+  }
+
+  @Test
+  void scanResistance() {
+    for (int round = 0; round < 5; ++round) {
+      for (int i = 0; i < 50; ++i) {
+        c.insert(i, i);
+        c.get(i);
+      }
+    }
+    for (int i = 1000; i < 100000; ++i) {
+      c.insert(i, i); // a scan of keys that are used once
+    }
+    c.evictionLock.lock();
+    c.drainReadBuffers();
+    c.evictionLock.unlock();
+    int kept = 0;
+    for (int i = 0; i < 50; ++i) {
+      if (c.hasKey(i)) ++kept;
+    }
+    assertTrue(kept >= 45, "kept " + kept);
+  }
+
+  @Test
+  void missesCount() {
+    for (int i = 0; i < 100; ++i) {
+      c.insert(i, i);
+      c.get(i);
+    }
+    for (int round = 0; round < 5; ++round) {
+      assertNull(c.get(1000)); // a key asked for over and over, but never cached
+    }
+    c.insert(1000, 1000);
+    c.insert(1001, 1001); // pushes 1000 out of the window
+    assertTrue(c.hasKey(1000));
+    c.evictionLock.lock();
+    try {
+      assertTrue(c.sketch.frequency(Integer.valueOf(1000).hashCode()) >= 6);
+    } finally {
+      c.evictionLock.unlock();
+    }
+  }
+
+  @Test
+  void concurrentReadsAndWrites() throws InterruptedException {
+    TinyLfuCache<Integer, Integer> shared = new TinyLfuCache<>(1000);
+    List<Thread> workers = new ArrayList<>();
+    List<Throwable> errors = new ArrayList<>();
+    for (int t = 0; t < 8; ++t) {
+      int seed = t;
+      Thread worker =
+          new Thread(
+              () -> {
+                for (int i = 0; i < 20000; ++i) {
+                  int key = (i * 31 + seed) % 3000;
+                  Integer v = shared.get(key);
+                  if (v != null && v != key) throw new AssertionError(key + " -> " + v);
+                  if (v == null) shared.insert(key, key);
+                }
+              });
+      worker.setUncaughtExceptionHandler((th, e) -> errors.add(e));
+      workers.add(worker);
+      worker.start();
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    assertTrue(errors.isEmpty(), errors.toString());
+    assertTrue(shared.size() <= 1000);
+    shared.evictionLock.lock();
+    try {
+      shared.drainReadBuffers();
+      int queued = shared.window.size() + shared.probation.size() + shared.protectedQueue.size();
+      assertEquals(shared.size(), queued);
+    } finally {
+      shared.evictionLock.unlock();
+    }
+  }
+}